@@ -0,0 +1,129 @@
+package ch.epfl.bench;
+
+import ch.epfl.rigel.astronomy.StarCatalogue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Random catalogues of any size, for the benchmarks
+ * <p>
+ *     Stars are uniformly distributed on the sphere, have magnitudes between -1.5 and 12 with many
+ *     more faint stars than bright ones, and Hipparcos numbers 1 to starCount in order.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public final class SyntheticCatalogue {
+    // Fix random seed to guarantee reproducibility.
+    public final static long SEED = 2020;
+
+    private static final String HYG_HEADER = "id,hip,hd,hr,gl,bf,proper,ra,dec,dist,pmra,pmdec,rv,mag,absmag,spect,ci,x,y,z,vx,vy,vz,rarad,decrad,pmrarad,pmdecrad,bayer,flam,con,comp,comp_primary,base,lum,var,var_min,var_max";
+    private static final String[] CONSTELLATIONS = {"And", "Aql", "Cyg", "Ori", "Phe", "UMa", "Sco", "Tau"};
+
+    private SyntheticCatalogue() {}
+
+    /**
+     * @param starCount
+     * @return the stars, in the format of hygdata_v3.csv
+     */
+    public static byte[] hygCsv(int starCount) {
+        SplittableRandom rng = new SplittableRandom(SEED);
+        StringBuilder csv = new StringBuilder(HYG_HEADER.length() + 120 * starCount).append(HYG_HEADER);
+        for (int i = 0; i < starCount; ++i) {
+            Star s = new Star(rng);
+            String proper = (i % 50 == 0) ? "Star" + i : "";
+            String bayer = (i % 3 == 0) ? "Alp" : "";
+            String con = CONSTELLATIONS[i % CONSTELLATIONS.length];
+            csv.append('\n').append(String.format(Locale.ROOT,
+                    "%d,%d,,,,,%s,,,,,,,%.3f,,,%.3f,,,,,,,%s,%s,,,%s,,%s,1,%d,,,,,",
+                    i, i + 1, proper, s.magnitude, s.colorIndex, s.ra, s.dec, bayer, con, i));
+        }
+        return csv.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param starCount number of stars of the catalogue the asterisms refer to
+     * @param asterismCount
+     * @return random asterisms of 2 to 8 stars, in the format of asterisms.txt
+     */
+    public static byte[] asterisms(int starCount, int asterismCount) {
+        SplittableRandom rng = new SplittableRandom(SEED);
+        StringBuilder asterisms = new StringBuilder();
+        for (int a = 0; a < asterismCount; ++a) {
+            int size = rng.nextInt(2, 9);
+            for (int s = 0; s < size; ++s) {
+                asterisms.append(s == 0 ? "" : ",").append(rng.nextInt(1, starCount + 1));
+            }
+            asterisms.append('\n');
+        }
+        return asterisms.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param starCount
+     * @return a builder already containing the stars, added without parsing
+     */
+    public static StarCatalogue.Builder builder(int starCount) {
+        SplittableRandom rng = new SplittableRandom(SEED);
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < starCount; ++i) {
+            Star s = new Star(rng);
+            builder.addStar(i + 1, "Star" + i, s.ra, s.dec, (float) s.magnitude, (float) s.colorIndex);
+        }
+        return builder;
+    }
+
+    /**
+     * @param starCount
+     * @return a catalogue of starCount stars, without asterisms
+     */
+    public static StarCatalogue catalogue(int starCount) {
+        return builder(starCount).build();
+    }
+
+    /**
+     * @param starCount
+     * @param centerRa right ascension of the center of the cap, in radians
+     * @param centerDec declination of the center of the cap, in radians
+     * @param radius angular radius of the cap, in radians
+     * @return a catalogue of starCount stars uniformly distributed in the cap, without asterisms
+     */
+    public static StarCatalogue catalogueAround(int starCount, double centerRa, double centerDec, double radius) {
+        SplittableRandom rng = new SplittableRandom(SEED);
+        // unit vectors of the center and of two directions orthogonal to it
+        double cx = Math.cos(centerDec) * Math.cos(centerRa), cy = Math.cos(centerDec) * Math.sin(centerRa), cz = Math.sin(centerDec);
+        double ex = -Math.sin(centerRa), ey = Math.cos(centerRa);
+        double nx = -Math.sin(centerDec) * Math.cos(centerRa), ny = -Math.sin(centerDec) * Math.sin(centerRa), nz = Math.cos(centerDec);
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < starCount; ++i) {
+            Star s = new Star(rng);
+            // uniform on the cap: the cosine of the distance to the center is uniform
+            double cosDistance = rng.nextDouble(Math.cos(radius), 1);
+            double sinDistance = Math.sqrt(1 - cosDistance * cosDistance);
+            double bearing = rng.nextDouble(0, 2 * Math.PI);
+            double e = sinDistance * Math.cos(bearing), n = sinDistance * Math.sin(bearing);
+            double x = cosDistance * cx + e * ex + n * nx;
+            double y = cosDistance * cy + e * ey + n * ny;
+            double z = cosDistance * cz + n * nz;
+            double ra = Math.atan2(y, x);
+            builder.addStar(i + 1, "Star" + i, ra < 0 ? ra + 2 * Math.PI : ra,
+                    Math.asin(Math.max(-1, Math.min(1, z))), (float) s.magnitude, (float) s.colorIndex);
+        }
+        return builder.build();
+    }
+
+    // attributes of one random star
+    private static final class Star {
+        final double ra, dec, magnitude, colorIndex;
+
+        Star(SplittableRandom rng) {
+            ra = rng.nextDouble(0, 2 * Math.PI);
+            dec = Math.asin(rng.nextDouble(-1, 1));
+            // the number of stars grows exponentially with magnitude
+            magnitude = 12 - 13.5 * Math.pow(rng.nextDouble(), 4);
+            colorIndex = rng.nextDouble(-0.4, 2.0);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.bench.SyntheticCatalogue;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of the asterisms alone, as many as in asterisms.txt, into a builder already holding the stars.
+ * Stars being found by their Hipparcos number in an index, the time should not depend on starCount.
+ * <p>
+ *     The asterisms of every operation stay in the builder, which is therefore rebuilt for each iteration.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class AsterismLoadingBenchmark {
+
+    @Param({"5000", "120000", "2000000"})
+    public int starCount;
+
+    private byte[] asterisms;
+    private StarCatalogue.Builder builder;
+
+    @Setup(Level.Trial)
+    public void setUpAsterisms() {
+        asterisms = SyntheticCatalogue.asterisms(starCount, 150);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpBuilder() {
+        builder = SyntheticCatalogue.builder(starCount);
+    }
+
+    @Benchmark
+    public StarCatalogue.Builder load() throws IOException {
+        return builder.loadFrom(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE);
+    }
+}
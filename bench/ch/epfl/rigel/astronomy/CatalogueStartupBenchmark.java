@@ -0,0 +1,91 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.bench.SyntheticCatalogue;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of the catalogue: loading stars and asterisms, then building the catalogue.
+ * <p>
+ *     Both must scale linearly with the number of stars, i.e. the time divided by starCount should
+ *     stay roughly constant from 5 thousand to 2 million stars.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CatalogueStartupBenchmark {
+
+    @Param({"5000", "120000", "2000000"})
+    public int starCount;
+
+    private byte[] hygCsv;
+    private byte[] asterisms;
+    private Path binaryFile;
+    private List<Star> stars;
+    private List<Asterism> asterismList;
+
+    @Setup
+    public void setUp() throws IOException {
+        hygCsv = SyntheticCatalogue.hygCsv(starCount);
+        asterisms = SyntheticCatalogue.asterisms(starCount, 150);
+        StarCatalogue catalogue = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(hygCsv), HygDatabaseLoader.INSTANCE)
+                .loadFrom(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE)
+                .build();
+        stars = List.copyOf(catalogue.stars());
+        asterismList = List.copyOf(catalogue.asterisms());
+        binaryFile = Files.createTempFile("rigel-bench", ".bin");
+        try (OutputStream os = Files.newOutputStream(binaryFile)) {
+            BinaryCatalogueWriter.write(catalogue, os);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(binaryFile);
+    }
+
+    /**
+     * What Main does at startup, on synthetic data
+     */
+    @Benchmark
+    public StarCatalogue loadAndBuild() throws IOException {
+        return new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(hygCsv), HygDatabaseLoader.INSTANCE)
+                .loadFrom(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE)
+                .build();
+    }
+
+    /**
+     * Same as loadAndBuild, with the stars memory-mapped from a binary catalogue instead of parsed
+     */
+    @Benchmark
+    public StarCatalogue loadBinaryAndBuild() throws IOException {
+        return new StarCatalogue.Builder()
+                .loadFrom(new FileInputStream(binaryFile.toFile()), BinaryCatalogueLoader.INSTANCE)
+                .loadFrom(new ByteArrayInputStream(asterisms), AsterismLoader.INSTANCE)
+                .build();
+    }
+
+    /**
+     * Catalogue construction alone, from already instantiated stars and asterisms
+     */
+    @Benchmark
+    public StarCatalogue buildFromStarList() {
+        return new StarCatalogue(stars, asterismList);
+    }
+}
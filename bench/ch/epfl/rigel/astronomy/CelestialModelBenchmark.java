@@ -0,0 +1,81 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EclipticToEquatorialConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.math.Trigonometry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the models of the Sun, the Moon and the planets, computed for every new time or place.
+ * One operation is one celestial object at one time, allPlanets counting the seven planets other than the Earth,
+ * bodies the Sun, the Moon and the planets converted to horizontal coordinates as SkyState does. The
+ * conversions take the precise or the display trigonometric functions, the models themselves always the precise.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CelestialModelBenchmark {
+
+    private static final ZonedDateTime WHEN =
+            ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC);
+
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final StarCatalogue NO_STARS = new StarCatalogue(List.of(), List.of());
+
+    @Param({"PRECISE", "DISPLAY"})
+    public Trigonometry trig;
+
+    private double daysSinceJ2010;
+    private EclipticToEquatorialConversion eclipticToEquatorial;
+
+    @Setup
+    public void setUp() {
+        daysSinceJ2010 = Epoch.J2010.daysUntil(WHEN);
+        eclipticToEquatorial = new EclipticToEquatorialConversion(WHEN, trig);
+    }
+
+    @Benchmark
+    public Sun sun() {
+        return SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorial);
+    }
+
+    @Benchmark
+    public Moon moon() {
+        return MoonModel.MOON.at(daysSinceJ2010, eclipticToEquatorial);
+    }
+
+    @Benchmark
+    public Planet jupiter() {
+        return PlanetModel.JUPITER.at(daysSinceJ2010, eclipticToEquatorial);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public void allPlanets(Blackhole blackhole) {
+        // as in SkyState, the Earth is not observed from itself
+        for (PlanetModel planet : PlanetModel.values()) {
+            if (planet != PlanetModel.EARTH) {
+                blackhole.consume(planet.at(daysSinceJ2010, eclipticToEquatorial));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(9)
+    public SkyState bodies() {
+        return new SkyState(WHEN, WHERE, NO_STARS, null, trig);
+    }
+}
@@ -0,0 +1,59 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.bench.SyntheticCatalogue;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the HYG database alone, line splitting loader against byte loader, sequential and parallel.
+ * <p>
+ *     catalogue "hyg" is the full hygdata_v3.csv of the resources, the numbers are synthetic catalogues
+ *     in the same format. Run with -prof gc to compare the garbage created per star. The speedup of the
+ *     parallel loader depends on the number of cores, which JMH prints in its header.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class HygParsingBenchmark {
+
+    @Param({"hyg", "5000", "120000", "2000000"})
+    public String catalogue;
+
+    private byte[] hygCsv;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (catalogue.equals("hyg")) {
+            try (InputStream stream = getClass().getResourceAsStream("/hygdata_v3.csv")) {
+                hygCsv = stream.readAllBytes();
+            }
+        } else {
+            hygCsv = SyntheticCatalogue.hygCsv(Integer.parseInt(catalogue));
+        }
+    }
+
+    @Benchmark
+    public StarCatalogue.Builder splitLines() throws IOException {
+        return new StarCatalogue.Builder().loadFrom(new ByteArrayInputStream(hygCsv), HygDatabaseLoader.INSTANCE);
+    }
+
+    @Benchmark
+    public StarCatalogue.Builder scanBytes() throws IOException {
+        return new StarCatalogue.Builder().loadFrom(new ByteArrayInputStream(hygCsv), HygDatabaseByteLoader.INSTANCE);
+    }
+
+    @Benchmark
+    public StarCatalogue.Builder scanBytesInParallel() throws IOException {
+        return new StarCatalogue.Builder().loadFrom(new ByteArrayInputStream(hygCsv), HygDatabaseByteLoader.PARALLEL);
+    }
+}
@@ -0,0 +1,93 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.bench.SyntheticCatalogue;
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one observed sky: everything recomputed, as when the time or the place change, against the
+ * projection of an already computed sky state, as when panning, and the search of the object under the mouse,
+ * done on every mouse move. The culled variants only project the stars within 45 degrees of the center, as
+ * the canvas does with a field of view of about 60 degrees, the limited ones also only the stars of
+ * magnitude at most 7, as the canvas does with its initial field of view of 100 degrees.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ObservedSkyBenchmark {
+
+    private static final ZonedDateTime WHEN =
+            ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC);
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+
+    @Param({"5000", "120000", "2000000"})
+    public int starCount;
+
+    private StarCatalogue catalogue;
+    private StereographicProjection projection;
+    private SkyState state;
+    private ObservedSky sky;
+    // a 10 pixels radius on a 800 pixels wide canvas with a 100 degrees field of view
+    private final CartesianCoordinates mouse = CartesianCoordinates.of(0.12, 0.08);
+    private final double maxDist = 0.0117;
+    private final double cullRadius = Math.toRadians(45);
+    private final double magnitudeLimit = 7;
+
+    @Setup
+    public void setUp() {
+        catalogue = SyntheticCatalogue.catalogue(starCount);
+        projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+        state = new SkyState(WHEN, WHERE, catalogue);
+        sky = new ObservedSky(state, projection);
+        sky.objectClosestTo(mouse, maxDist);
+    }
+
+    @Benchmark
+    public ObservedSky timeOrPlaceChange() {
+        return new ObservedSky(WHEN, WHERE, projection, catalogue);
+    }
+
+    @Benchmark
+    public ObservedSky projectionChange() {
+        return new ObservedSky(state, projection);
+    }
+
+    @Benchmark
+    public ObservedSky timeOrPlaceChangeCulled() {
+        return new ObservedSky(new SkyState(WHEN, WHERE, catalogue), projection, cullRadius);
+    }
+
+    @Benchmark
+    public ObservedSky projectionChangeCulled() {
+        return new ObservedSky(state, projection, cullRadius);
+    }
+
+    @Benchmark
+    public ObservedSky timeOrPlaceChangeLimited() {
+        return new ObservedSky(new SkyState(WHEN, WHERE, catalogue), projection, cullRadius, magnitudeLimit);
+    }
+
+    @Benchmark
+    public ObservedSky projectionChangeLimited() {
+        return new ObservedSky(state, projection, cullRadius, magnitudeLimit);
+    }
+
+    @Benchmark
+    public CelestialObject objectUnderMouse() {
+        return sky.objectClosestTo(mouse, maxDist);
+    }
+}
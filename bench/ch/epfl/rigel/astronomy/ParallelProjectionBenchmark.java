@@ -0,0 +1,69 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.bench.SyntheticCatalogue;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the star conversion and projection with the number of cores of the pool, cores = 1 being the
+ * serial path. Counts above the number of cores of the machine only measure the cost of the extra tasks.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class ParallelProjectionBenchmark {
+
+    private static final ZonedDateTime WHEN =
+            ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC);
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+
+    @Param({"100000", "1000000", "5000000"})
+    public int starCount;
+
+    @Param({"1", "2", "4", "8"})
+    public int cores;
+
+    private StarCatalogue catalogue;
+    private StereographicProjection projection;
+    private ForkJoinPool pool;
+    private SkyState state;
+
+    @Setup
+    public void setUp() {
+        catalogue = SyntheticCatalogue.catalogue(starCount);
+        projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+        pool = cores == 1 ? null : new ForkJoinPool(cores);
+        state = new SkyState(WHEN, WHERE, catalogue, pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public ObservedSky timeOrPlaceChange() {
+        return new ObservedSky(new SkyState(WHEN, WHERE, catalogue, pool), projection);
+    }
+
+    @Benchmark
+    public ObservedSky projectionChange() {
+        return new ObservedSky(state, projection);
+    }
+}
@@ -0,0 +1,118 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.Trigonometry;
+
+/**
+ * Batch conversion of equatorial coordinates directly to the projection plane, the way the stars were projected
+ * before EquatorialToPlaneRotation, kept as the baseline of StarProjectionKernelBenchmark.
+ * <p>
+ *     Fuses EquatorialToHorizontalConversion.apply() and StereographicProjection.apply() into a single
+ *     loop over primitive arrays: no intermediate HorizontalCoordinates or CartesianCoordinates are created
+ *     and no interval checks are made on the hot path, the results are the same as the ones of the chain.
+ *     Arguments are only checked once per call, not once per star.
+ * </p><p>
+ *     The trigonometric functions are the ones of java.lang.Math unless Trigonometry.DISPLAY is chosen,
+ *     whose arc sine and arc tangent are several times faster, the stars staying within a thousandth of a
+ *     pixel of their precise positions on any canvas of the program.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class EquatorialToPlaneConversion {
+
+    // equatorial to horizontal part
+    private final double sidTime, cosPhi, sinPhi;
+    // stereographic projection part
+    private final double lambdaCenter, cosPhiCenter, sinPhiCenter;
+    private final Trigonometry trig;
+
+    /**
+     * everything that only depends on the observer, the time and the projection is computed once here
+     * @param conversion equatorial to horizontal conversion of the observer at the given time
+     * @param projection projection onto the plane
+     */
+    EquatorialToPlaneConversion(EquatorialToHorizontalConversion conversion, StereographicProjection projection) {
+        this(conversion, projection, Trigonometry.PRECISE);
+    }
+
+    /**
+     * Same as above, with the given trigonometric functions for the conversion of every star
+     * @param conversion equatorial to horizontal conversion of the observer at the given time
+     * @param projection projection onto the plane
+     * @param trig trigonometric functions, PRECISE for the same results as the conversion and projection chain
+     */
+    EquatorialToPlaneConversion(EquatorialToHorizontalConversion conversion, StereographicProjection projection,
+                                       Trigonometry trig) {
+        this.trig = trig;
+        this.sidTime = conversion.siderealTime();
+        this.cosPhi = conversion.cosLat();
+        this.sinPhi = conversion.sinLat();
+        this.lambdaCenter = projection.centerAz();
+        this.cosPhiCenter = projection.cosCenterAlt();
+        this.sinPhiCenter = projection.sinCenterAlt();
+    }
+
+    /**
+     * Converts all the given coordinates
+     * @param ra right ascensions in radians
+     * @param dec declinations in radians, same length as ra
+     * @param xy output, projected x at index 2i and projected y at index 2i+1 for the ith coordinates
+     * @throws IllegalArgumentException if the array lengths do not match
+     */
+    public void apply(double[] ra, double[] dec, double[] xy) {
+        apply(ra, dec, xy, 0, ra.length);
+    }
+
+    /**
+     * Converts the coordinates of index in [from, to[, the other entries of xy are left untouched
+     * @param ra right ascensions in radians
+     * @param dec declinations in radians, same length as ra
+     * @param xy output, projected x at index 2i and projected y at index 2i+1 for the ith coordinates
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @throws IllegalArgumentException if the array lengths do not match or the range is not inside them
+     */
+    public void apply(double[] ra, double[] dec, double[] xy, int from, int to) {
+        Preconditions.checkArgument(ra.length == dec.length && xy.length == 2 * ra.length);
+        Preconditions.checkArgument(0 <= from && from <= to && to <= ra.length);
+
+        for (int i = from; i < to; ++i) {
+            // equatorial to horizontal, as in EquatorialToHorizontalConversion.apply()
+            double H = sidTime - ra[i];
+            double sinEqDec = trig.sin(dec[i]);
+            double cosEqDec = trig.cos(dec[i]);
+            double h = trig.asin(sinEqDec * sinPhi + cosEqDec * cosPhi * trig.cos(H));
+            double sinH = trig.sin(h);
+            double A = Angle.normalizePositive(trig.atan2(
+                    -cosEqDec * cosPhi * trig.sin(H),
+                    sinEqDec - sinPhi * sinH));
+
+            // horizontal to plane, as in StereographicProjection.apply()
+            double cosAlt = trig.cos(h);
+            double lambdaDelta = A - lambdaCenter;
+            double cosLambdaDelta = trig.cos(lambdaDelta);
+            double d = 1.0 / (1 + sinH * sinPhiCenter + cosAlt * cosPhiCenter * cosLambdaDelta);
+
+            xy[2 * i] = d * cosAlt * trig.sin(lambdaDelta);
+            xy[2 * i + 1] = d * (sinH * cosPhiCenter - cosAlt * sinPhiCenter * cosLambdaDelta);
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public int hashCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public boolean equals(Object obj) {
+        throw new UnsupportedOperationException();
+    }
+}
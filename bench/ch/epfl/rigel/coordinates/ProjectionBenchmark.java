@@ -0,0 +1,53 @@
+package ch.epfl.rigel.coordinates;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the stereographic projection of one point, as done for the Sun, the Moon, the planets and
+ * the horizon, and of its inverse, as done for the mouse. One operation is one point.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final int POINTS = 1024;
+
+    private final StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+    private final HorizontalCoordinates[] horizontal = new HorizontalCoordinates[POINTS];
+    private final CartesianCoordinates[] plane = new CartesianCoordinates[POINTS];
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rng = new SplittableRandom(2020);
+        for (int i = 0; i < POINTS; ++i) {
+            horizontal[i] = HorizontalCoordinates.ofDeg(rng.nextDouble(0, 360), rng.nextDouble(-90, 90));
+            plane[i] = CartesianCoordinates.of(rng.nextDouble(-2, 2), rng.nextDouble(-2, 2));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void apply(Blackhole blackhole) {
+        for (HorizontalCoordinates point : horizontal) {
+            blackhole.consume(projection.apply(point));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void inverseApply(Blackhole blackhole) {
+        for (CartesianCoordinates point : plane) {
+            blackhole.consume(projection.inverseApply(point));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.rigel.math.Trigonometry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per frame of the projection of the stars alone: the conversion and projection chain, with its
+ * trigonometric functions per star, precise or for display, against the rotation of precomputed unit vectors, one star at a time and
+ * with the kernel EquatorialToPlaneRotation selects, vectorized when run with jdk.incubator.vector.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class StarProjectionKernelBenchmark {
+
+    private static final ZonedDateTime WHEN =
+            ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC);
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+
+    @Param({"1000000"})
+    public int starCount;
+
+    private double[] ra, dec, x, y, z, xy;
+    private int[] xyIndex;
+    private EquatorialToHorizontalConversion conversion;
+    private StereographicProjection projection;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rng = new SplittableRandom(2020);
+        ra = new double[starCount];
+        dec = new double[starCount];
+        x = new double[starCount];
+        y = new double[starCount];
+        z = new double[starCount];
+        xyIndex = new int[starCount];
+        for (int i = 0; i < starCount; ++i) {
+            ra[i] = rng.nextDouble(0, 2 * Math.PI);
+            dec[i] = Math.asin(rng.nextDouble(-1, 1));
+            x[i] = Math.cos(dec[i]) * Math.cos(ra[i]);
+            y[i] = Math.cos(dec[i]) * Math.sin(ra[i]);
+            z[i] = Math.sin(dec[i]);
+            xyIndex[i] = i;
+        }
+        xy = new double[2 * starCount];
+        conversion = new EquatorialToHorizontalConversion(WHEN, WHERE);
+        projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+    }
+
+    @Benchmark
+    public double[] trigonometricChain() {
+        new EquatorialToPlaneConversion(conversion, projection).apply(ra, dec, xy);
+        return xy;
+    }
+
+    @Benchmark
+    public double[] trigonometricChainDisplay() {
+        new EquatorialToPlaneConversion(conversion, projection, Trigonometry.DISPLAY).apply(ra, dec, xy);
+        return xy;
+    }
+
+    @Benchmark
+    public double[] rotationScalar() {
+        EquatorialToPlaneRotation rotation = new EquatorialToPlaneRotation(conversion, projection);
+        EquatorialToPlaneRotation.applyScalar(rotation.matrix(), x, y, z, xy, 0, starCount, xyIndex);
+        return xy;
+    }
+
+    @Benchmark
+    public double[] rotation() {
+        new EquatorialToPlaneRotation(conversion, projection).apply(x, y, z, xy, 0, starCount, xyIndex);
+        return xy;
+    }
+}
@@ -0,0 +1,89 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.bench.SyntheticCatalogue;
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.math.Angle;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the raster rendering of the stars with the number of cores of the pool and the
+ * output scale of the screen, on a 1920x1080 canvas, i.e. 3840x2160 pixels at scale 2, every star of the
+ * catalogue being on the canvas. cores = 1 is the serial path, counts above the number of cores of the machine
+ * only measure the cost of the extra tasks. Compiled only with PATH_TO_FX.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Dprism.order=sw"})
+public class ParallelRasterBenchmark {
+
+    private static final ZonedDateTime WHEN =
+            ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC);
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final double WIDTH = 1920, HEIGHT = 1080;
+
+    @Param({"50000", "500000"})
+    public int visibleStars;
+
+    @Param({"1", "2", "4", "8"})
+    public int cores;
+
+    @Param({"1", "2"})
+    public double outputScale;
+
+    private ObservedSky sky;
+    private StereographicProjection projection;
+    private Transform planeToCanvas;
+    private ForkJoinPool pool;
+    private SkyCanvasPainter painter;
+    private final BackgroundRgbBean background = new BackgroundRgbBean();
+
+    @Setup
+    public void setUp() {
+        HorizontalCoordinates center = HorizontalCoordinates.ofDeg(180, 45);
+        projection = new StereographicProjection(center);
+        double dilation = WIDTH / projection.applyToAngle(Angle.ofDeg(100));
+        planeToCanvas = Transform.affine(dilation, 0, 0, -dilation, WIDTH / 2, HEIGHT / 2);
+        // the circle inscribed in the canvas, a point at angle a from the center being at tan(a / 2) from it
+        double radius = 2 * Math.atan(HEIGHT / 2 / dilation);
+        EquatorialCoordinates equatorialCenter = new EquatorialToHorizontalConversion(WHEN, WHERE).inverseApply(center);
+        sky = new ObservedSky(WHEN, WHERE, projection,
+                SyntheticCatalogue.catalogueAround(visibleStars, equatorialCenter.ra(), equatorialCenter.dec(), radius));
+        pool = cores == 1 ? null : new ForkJoinPool(cores);
+        painter = new SkyCanvasPainter(new Canvas(WIDTH, HEIGHT), pool, () -> outputScale);
+        background.setBackgroundColor(Color.BLACK);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public SkyCanvasPainter drawImage() {
+        painter.clear(background);
+        painter.drawImage(sky, projection, planeToCanvas, Double.MAX_VALUE, false);
+        return painter;
+    }
+}
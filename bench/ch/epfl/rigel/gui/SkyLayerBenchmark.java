@@ -0,0 +1,79 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.bench.SyntheticCatalogue;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import javafx.beans.property.SimpleObjectProperty;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost on the JavaFX thread of the changes that only touch some layers of a 1920x1080 SkyCanvasManager: showing
+ * or hiding the horizon only repaints its layer, the planets theirs, while a change of the magnitude within the
+ * same whole magnitude repaints the stars, as every change did when the sky was painted on one canvas. Run
+ * without the JavaFX toolkit, in software, compiled only with PATH_TO_FX.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Dprism.order=sw"})
+public class SkyLayerBenchmark {
+
+    @Param({"5000", "120000"})
+    public int starCount;
+
+    private final SkyModeBean skyMode = new SkyModeBean();
+    private final MagnitudeBean magnitude = new MagnitudeBean();
+    private SkyCanvasManager manager;
+    private boolean toggled;
+
+    @Setup
+    public void setUp() {
+        DateTimeBean dateTime = new DateTimeBean();
+        dateTime.setZonedDateTime(ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC));
+        ObserverLocationBean location = new ObserverLocationBean();
+        location.setLonDeg(6.57);
+        location.setLatDeg(46.52);
+        ViewingParametersBean viewingParameters = new ViewingParametersBean();
+        viewingParameters.setCenter(HorizontalCoordinates.ofDeg(180, 15));
+        viewingParameters.setFieldOfViewDeg(100);
+        skyMode.setMode("normal");
+        manager = new SkyCanvasManager(new SimpleObjectProperty<StarCatalogue>(SyntheticCatalogue.catalogue(starCount)),
+                dateTime, location, viewingParameters, skyMode, magnitude, new BackgroundRgbBean(),
+                SkyComputationWorker.onCallingThread());
+        manager.canvas().setWidth(1920);
+        manager.canvas().setHeight(1080);
+        // as the information pane of Main does, this validates the sky and the transform
+        manager.objectUnderMouseProperty().get();
+    }
+
+    @Benchmark
+    public SkyCanvasManager toggleHorizon() {
+        toggled = !toggled;
+        skyMode.setMode(toggled ? "horizon-excluded" : "normal");
+        return manager;
+    }
+
+    @Benchmark
+    public SkyCanvasManager togglePlanets() {
+        toggled = !toggled;
+        skyMode.setMode(toggled ? "planet-excluded" : "normal");
+        return manager;
+    }
+
+    @Benchmark
+    public SkyCanvasManager changeMagnitude() {
+        toggled = !toggled;
+        magnitude.setMagnitude(toggled ? 6.5 : 6.6);
+        return manager;
+    }
+}
@@ -0,0 +1,84 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.bench.SyntheticCatalogue;
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.math.Angle;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost on the JavaFX thread of drawing the stars of a frame on a 1920x1080 canvas with a field of view of
+ * 100 degrees, every star of the catalogue being on the canvas. Each frame clears the canvas first, as
+ * SkyCanvasManager does, which also empties the commands the canvas queued. The oval and sprite renderings only
+ * queue one oval or one image of the atlas per star, rasterising them is then left to the render thread, the
+ * raster rendering draws them itself and queues one image. Run without the JavaFX toolkit, in software, compiled only with PATH_TO_FX.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Dprism.order=sw"})
+public class StarRenderingBenchmark {
+
+    private static final ZonedDateTime WHEN =
+            ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC);
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final double WIDTH = 1920, HEIGHT = 1080;
+
+    @Param({"5000", "50000", "500000"})
+    public int visibleStars;
+
+    @Param({"OVALS", "SPRITES", "RASTER"})
+    public StarRendering rendering;
+
+    private ObservedSky sky;
+    private StereographicProjection projection;
+    private Transform planeToCanvas;
+    private SkyCanvasPainter painter;
+    private final BackgroundRgbBean background = new BackgroundRgbBean();
+
+    @Setup
+    public void setUp() {
+        HorizontalCoordinates center = HorizontalCoordinates.ofDeg(180, 45);
+        projection = new StereographicProjection(center);
+        double dilation = WIDTH / projection.applyToAngle(Angle.ofDeg(100));
+        planeToCanvas = Transform.affine(dilation, 0, 0, -dilation, WIDTH / 2, HEIGHT / 2);
+        // the circle inscribed in the canvas, a point at angle a from the center being at tan(a / 2) from it
+        double radius = 2 * Math.atan(HEIGHT / 2 / dilation);
+        EquatorialCoordinates equatorialCenter = new EquatorialToHorizontalConversion(WHEN, WHERE).inverseApply(center);
+        sky = new ObservedSky(WHEN, WHERE, projection,
+                SyntheticCatalogue.catalogueAround(visibleStars, equatorialCenter.ra(), equatorialCenter.dec(), radius));
+        // serially, at the scale of the canvas, see ParallelRasterBenchmark for the other cases
+        painter = new SkyCanvasPainter(new Canvas(WIDTH, HEIGHT), null, () -> 1);
+        background.setBackgroundColor(Color.BLACK);
+    }
+
+    @Benchmark
+    public SkyCanvasPainter drawStars() {
+        painter.clear(background);
+        if (rendering == StarRendering.OVALS) {
+            painter.drawStars(sky, projection, planeToCanvas, Double.MAX_VALUE);
+        } else if (rendering == StarRendering.SPRITES) {
+            painter.drawSprites(sky, projection, planeToCanvas, Double.MAX_VALUE);
+        } else {
+            painter.drawImage(sky, projection, planeToCanvas, Double.MAX_VALUE, false);
+        }
+        return painter;
+    }
+}
@@ -0,0 +1,76 @@
+package ch.epfl.rigel.math;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each trigonometric function, precise against display, on arguments spread as in the conversion of
+ * the stars: angles within two turns, sines in [-1, 1] and points of the plane in every direction.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrigonometryBenchmark {
+
+    private static final int COUNT = 100_000;
+
+    @Param({"PRECISE", "DISPLAY"})
+    public Trigonometry trig;
+
+    private final double[] angles = new double[COUNT];
+    private final double[] values = new double[COUNT];
+    private final double[] ys = new double[COUNT];
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rng = new SplittableRandom(2020);
+        for (int i = 0; i < COUNT; ++i) {
+            angles[i] = rng.nextDouble(-2 * Angle.TAU, 2 * Angle.TAU);
+            values[i] = rng.nextDouble(-1, 1);
+            ys[i] = rng.nextDouble(-1, 1);
+        }
+    }
+
+    @Benchmark
+    public double sin() {
+        double sum = 0;
+        for (double angle : angles) {
+            sum += trig.sin(angle);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double cos() {
+        double sum = 0;
+        for (double angle : angles) {
+            sum += trig.cos(angle);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double asin() {
+        double sum = 0;
+        for (double value : values) {
+            sum += trig.asin(value);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double atan2() {
+        double sum = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            sum += trig.atan2(ys[i], values[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+# Compiles the sources and the benchmarks of this folder and runs them with JMH, headless.
+# Every argument is passed to JMH, for instance:
+#   bench/run-benchmarks.sh CatalogueStartup            only the benchmarks matching the regex
+#   bench/run-benchmarks.sh -p starCount=5000 -prof gc  one size, with allocation rate per operation
+#   bench/run-benchmarks.sh -bm thrpt -prof gc          throughput of every benchmark, with bytes allocated per operation
+#   bench/run-benchmarks.sh -h                          JMH options
+# Without arguments, the whole suite: sky construction and object under the mouse (ObservedSky), projection of
+# single points (Projection), Sun, Moon and planet models (CelestialModel), loaders (HygParsing, AsterismLoading)
+# and catalogue startup, on the HYG database and on synthetic catalogues of 5 thousand, 120 thousand and 2 million
+# stars. The gc.alloc.rate.norm lines of -prof gc are the bytes allocated per operation.
+# JMH jars are taken from the local maven repository and downloaded with maven if missing.
+# GUI benchmarks, drawing the stars as sprites or as one image (StarRendering), the scaling of the image with
+# cores and output scale (ParallelRaster) and the changes repainting only some layers (SkyLayer), are only compiled
+# when PATH_TO_FX points to the lib folder of a JavaFX SDK.
+# The vector kernel of the star projection is compiled, and its module added to the benchmark JVMs, when the
+# JDK has jdk.incubator.vector (Java 16 or later), the scalar one being measured otherwise.
+set -euo pipefail
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+REPOSITORY=${MAVEN_REPOSITORY:-$HOME/.m2/repository}
+OUT=${TMPDIR:-/tmp}/rigel-bench
+
+CLASSPATH=""
+for artifact in org.openjdk.jmh:jmh-core:1.23 \
+                org.openjdk.jmh:jmh-generator-annprocess:1.23 \
+                net.sf.jopt-simple:jopt-simple:4.6 \
+                org.apache.commons:commons-math3:3.2; do
+    IFS=: read -r group name version <<< "$artifact"
+    jar="$REPOSITORY/${group//.//}/$name/$version/$name-$version.jar"
+    if [ ! -f "$jar" ]; then
+        mvn -q dependency:get -Dartifact="$artifact" -Dtransitive=false
+    fi
+    CLASSPATH="$CLASSPATH:$jar"
+done
+
+if [ -n "${PATH_TO_FX:-}" ]; then
+    CLASSPATH="$CLASSPATH:$PATH_TO_FX/*"
+    SOURCES=$(find "$ROOT/src" "$ROOT/bench" -name '*.java')
+else
+    SOURCES=$(find "$ROOT/src" "$ROOT/bench" -name '*.java' -not -path '*/gui/*')
+fi
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+javac -encoding UTF-8 -nowarn -cp "$CLASSPATH" -d "$OUT" \
+      -processor org.openjdk.jmh.generators.BenchmarkProcessor $SOURCES
+cp -r "$ROOT/resources/." "$OUT"
+JVM_ARGS=()
+if java --list-modules | grep -q '^jdk.incubator.vector@'; then
+    javac -encoding UTF-8 -nowarn --add-modules jdk.incubator.vector -cp "$OUT" -d "$OUT" \
+          $(find "$ROOT/vector" -name '*.java')
+    JVM_ARGS=(-jvmArgsAppend=--add-modules=jdk.incubator.vector)
+fi
+java -cp "$OUT$CLASSPATH" org.openjdk.jmh.Main "${JVM_ARGS[@]}" "$@"
@@ -36,18 +36,15 @@ public enum AsterismLoader implements StarCatalogue.Loader {
                 List<Star> stars = new ArrayList();
                 // we first separate the txt file read by line into an array separated by the comma
                 String[] currentLine = line.split(",");
-                int i = 0;
                 // here we iterate through all members of the string array
-                do {
-                    // we now need to access every star already added to the starlist in the builder
-                    for (Star s : builder.stars()) {
-                        // if some star has the same hipparcosid as the currentLine member we add it to stars
-                        if (Integer.parseInt(currentLine[i]) == s.hipparcosId()) {
-                            stars.add(s);
-                        }
+                for (String hipparcosId : currentLine) {
+                    // the builder's index finds the star with the same hipparcosid without scanning the star list,
+                    // ids of stars that are not in the catalogue are ignored
+                    int index = builder.indexOfHipparcos(Integer.parseInt(hipparcosId));
+                    if (index >= 0) {
+                        stars.add(builder.stars().get(index));
                     }
-                    ++i;
-                } while (i < currentLine.length);
+                }
                 // once all valid stars are added to stars, we create a new asterism using stars
                 loadedAsterism = new Asterism(stars);
                 // we add the asterism to the builder
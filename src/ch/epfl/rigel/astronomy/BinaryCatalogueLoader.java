@@ -0,0 +1,99 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the stars of a binary catalogue, as written by BinaryCatalogueWriter.
+ * <p>
+ *     Format, big endian: a 16 bytes header (magic number, version, number of stars n, size of the name table),
+ *     then one fixed width column per attribute: n doubles for the right ascensions, n doubles for the
+ *     declinations, n ints for the Hipparcos numbers, n floats for the magnitudes, n floats for the color
+ *     indices, n+1 ints giving where each name starts in the name table, and finally the name table,
+ *     i.e. all names one after the other in UTF-8.
+ * </p><p>
+ *     Nothing is parsed: columns are read as they are. When the stream is a FileInputStream the file is
+ *     memory-mapped, otherwise it is read at once.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public enum BinaryCatalogueLoader implements StarCatalogue.Loader {
+    INSTANCE;
+
+    // "RGLC" in ASCII
+    static final int MAGIC = 0x52474C43;
+    static final int VERSION = 1;
+
+    @Override
+    public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
+        try (InputStream stream = inputStream) {
+            ByteBuffer buffer;
+            if (stream instanceof FileInputStream) {
+                FileChannel channel = ((FileInputStream) stream).getChannel();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, channel.position(), channel.size() - channel.position());
+            } else {
+                buffer = ByteBuffer.wrap(stream.readAllBytes());
+            }
+            load(buffer, builder);
+        }
+    }
+
+    // reads the columns one after the other and adds each star to the builder
+    private void load(ByteBuffer buffer, StarCatalogue.Builder builder) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a binary star catalogue of version " + VERSION);
+            }
+            int starCount = buffer.getInt();
+            int nameBytes = buffer.getInt();
+            if (starCount < 0 || nameBytes < 0
+                    || buffer.remaining() != 32L * starCount + 4 + nameBytes) {
+                throw new IOException("truncated binary star catalogue");
+            }
+
+            DoubleBuffer ra = column(buffer, 8 * starCount).asDoubleBuffer();
+            DoubleBuffer dec = column(buffer, 8 * starCount).asDoubleBuffer();
+            IntBuffer hipparcosId = column(buffer, 4 * starCount).asIntBuffer();
+            FloatBuffer magnitude = column(buffer, 4 * starCount).asFloatBuffer();
+            FloatBuffer colorIndex = column(buffer, 4 * starCount).asFloatBuffer();
+            IntBuffer nameStart = column(buffer, 4 * (starCount + 1)).asIntBuffer();
+            ByteBuffer names = column(buffer, nameBytes);
+
+            byte[] name = new byte[0];
+            for (int i = 0; i < starCount; ++i) {
+                int start = nameStart.get(i);
+                int end = nameStart.get(i + 1);
+                if (start < 0 || end < start || end > nameBytes) {
+                    throw new IOException("corrupted binary star catalogue: name of star " + i + " out of its table");
+                }
+                int length = end - start;
+                if (name.length < length) {
+                    name = new byte[length];
+                }
+                names.position(start);
+                names.get(name, 0, length);
+                builder.addStar(hipparcosId.get(i), new String(name, 0, length, StandardCharsets.UTF_8),
+                        ra.get(i), dec.get(i), magnitude.get(i), colorIndex.get(i));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // the latter also when a column holds a value the builder rejects, e.g. a declination out of range
+            throw new IOException("corrupted binary star catalogue", e);
+        }
+    }
+
+    // the next size bytes of buffer, as a buffer of their own, and moves buffer past them
+    private static ByteBuffer column(ByteBuffer buffer, int size) {
+        ByteBuffer column = buffer.slice().limit(size);
+        buffer.position(buffer.position() + size);
+        return column;
+    }
+}
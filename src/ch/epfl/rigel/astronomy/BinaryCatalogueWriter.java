@@ -0,0 +1,81 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+import static ch.epfl.rigel.astronomy.BinaryCatalogueLoader.*;
+
+/**
+ * Writes the stars of a catalogue in the binary format read by BinaryCatalogueLoader (see there for
+ * the format). Asterisms are not written, they are still loaded from their own file.
+ * <p>
+ *     Can be run to convert the HYG database:
+ *     java ch.epfl.rigel.astronomy.BinaryCatalogueWriter resources/hygdata_v3.csv resources/hygdata_v3.bin
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public final class BinaryCatalogueWriter {
+    // non-instantiable
+    private BinaryCatalogueWriter() {}
+
+    /**
+     * converts a HYG csv file to a binary catalogue
+     * @param args path of the csv file, path of the binary file to write
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BinaryCatalogueWriter <hyg csv file> <binary file>");
+            System.exit(1);
+        }
+        StarCatalogue catalogue;
+        try (InputStream hs = new FileInputStream(args[0])) {
+            catalogue = new StarCatalogue.Builder().loadFrom(hs, HygDatabaseLoader.INSTANCE).build();
+        }
+        try (OutputStream os = new FileOutputStream(args[1])) {
+            write(catalogue, os);
+        }
+    }
+
+    /**
+     * writes the stars of the catalogue, the stream is left open
+     * @param catalogue
+     * @param outputStream
+     * @throws IOException
+     */
+    public static void write(StarCatalogue catalogue, OutputStream outputStream) throws IOException {
+        int starCount = catalogue.starCount();
+        byte[][] names = new byte[starCount][];
+        int nameBytes = 0;
+        for (int i = 0; i < starCount; ++i) {
+            names[i] = catalogue.starName()[i].getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[i].length;
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(starCount);
+        out.writeInt(nameBytes);
+        for (double ra : catalogue.starRa())
+            out.writeDouble(ra);
+        for (double dec : catalogue.starDec())
+            out.writeDouble(dec);
+        for (int hip : catalogue.starHipparcosId())
+            out.writeInt(hip);
+        for (float magnitude : catalogue.starMagnitude())
+            out.writeFloat(magnitude);
+        for (float colorIndex : catalogue.starColorIndex())
+            out.writeFloat(colorIndex);
+        int nameStart = 0;
+        out.writeInt(nameStart);
+        for (byte[] name : names) {
+            nameStart += name.length;
+            out.writeInt(nameStart);
+        }
+        for (byte[] name : names)
+            out.write(name);
+        out.flush();
+    }
+}
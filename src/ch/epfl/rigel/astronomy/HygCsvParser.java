@@ -0,0 +1,445 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses rows of the HYG database straight from its ASCII bytes.
+ * <p>
+ *     Only the offsets of the columns we use are located in each line, the other columns are skipped
+ *     without being looked at, and numbers are parsed from the bytes themselves. The only objects
+ *     created per row are the star names. Package private, shared by the byte loaders.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class HygCsvParser {
+
+    // columns we use, in the order of the slots below
+    private static final String[] COLUMNS = {"hip", "proper", "mag", "ci", "rarad", "decrad", "bayer", "con"};
+    private static final int HIP = 0, PROPER = 1, MAG = 2, CI = 3, RARAD = 4, DECRAD = 5, BAYER = 6, CON = 7;
+
+    // largest integer up to which all integers are exact doubles
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; ++i)
+            POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+    }
+
+    // 128 bits approximations of the powers of five 5^q, q in [MIN_POWER, MAX_POWER], as in fast_float
+    private static final int MIN_POWER = -64, MAX_POWER = 64;
+    private static final long[] POWERS_OF_FIVE_HIGH = new long[MAX_POWER - MIN_POWER + 1];
+    private static final long[] POWERS_OF_FIVE_LOW = new long[MAX_POWER - MIN_POWER + 1];
+    static {
+        BigInteger twoTo128 = BigInteger.ONE.shiftLeft(128);
+        for (int q = MIN_POWER; q <= MAX_POWER; ++q) {
+            BigInteger power = BigInteger.valueOf(5).pow(Math.abs(q));
+            BigInteger approximation;
+            if (q < 0) {
+                // 2^b / 5^-q rounded up, with b such that it has 128 bits
+                int z = power.subtract(BigInteger.ONE).bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                approximation = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+            } else {
+                // 5^q shifted to have exactly 128 bits
+                approximation = power;
+            }
+            int excess = approximation.bitLength() - 128;
+            approximation = excess >= 0 ? approximation.shiftRight(excess) : approximation.shiftLeft(-excess);
+            POWERS_OF_FIVE_HIGH[q - MIN_POWER] = approximation.shiftRight(64).longValue();
+            POWERS_OF_FIVE_LOW[q - MIN_POWER] = approximation.mod(twoTo128).longValue();
+        }
+    }
+
+    // slot of each column of the file, -1 for the columns we don't use
+    private final int[] slotOfColumn;
+    // number of columns to scan in each line, the ones after the last used column are skipped
+    private final int scannedColumns;
+    // start and end offsets of the fields of the current line, reused from line to line
+    private final int[] fieldStart = new int[COLUMNS.length];
+    private final int[] fieldEnd = new int[COLUMNS.length];
+    // names made of the Bayer designation and the constellation, of which there are only a few hundred,
+    // in an open addressing table with linear probing
+    private String[] designations = new String[1024];
+    private int designationCount = 0;
+
+    /**
+     * @param bytes
+     * @param headerStart offset of the header line
+     * @param headerEnd offset of the end of the header line, exclusive
+     * @throws IOException if a column we need is not in the header
+     */
+    HygCsvParser(byte[] bytes, int headerStart, int headerEnd) throws IOException {
+        String[] header = new String(bytes, headerStart, headerEnd - headerStart, StandardCharsets.US_ASCII).split(",");
+        slotOfColumn = new int[header.length];
+        Arrays.fill(slotOfColumn, -1);
+        int lastColumn = -1;
+        for (int slot = 0; slot < COLUMNS.length; ++slot) {
+            int column = Arrays.asList(header).indexOf(COLUMNS[slot]);
+            if (column < 0) {
+                throw new IOException("missing column " + COLUMNS[slot] + " in HYG header");
+            }
+            slotOfColumn[column] = slot;
+            lastColumn = Math.max(lastColumn, column);
+        }
+        scannedColumns = lastColumn + 1;
+    }
+
+    /**
+     * Parser of the same columns as that, but with its own state, to parse another part of the file concurrently
+     * @param that
+     */
+    HygCsvParser(HygCsvParser that) {
+        slotOfColumn = that.slotOfColumn;
+        scannedColumns = that.scannedColumns;
+    }
+
+    /**
+     * @param bytes
+     * @param from
+     * @param to
+     * @return offset of the end of the first line starting at from, i.e. of its \n or \r, or to if there is none
+     */
+    static int lineEnd(byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to && bytes[i] != '\n' && bytes[i] != '\r') {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * @param bytes
+     * @param lineEnd offset returned by lineEnd()
+     * @param to
+     * @return offset of the start of the next line, \r\n counting as one line break
+     */
+    static int nextLine(byte[] bytes, int lineEnd, int to) {
+        if (lineEnd < to && bytes[lineEnd] == '\r') {
+            ++lineEnd;
+        }
+        if (lineEnd < to && bytes[lineEnd] == '\n') {
+            ++lineEnd;
+        }
+        return lineEnd;
+    }
+
+    /**
+     * Adds the star of every line in [from, to[ to the builder, in order. Empty lines are ignored.
+     * @param bytes
+     * @param from offset of the start of a line
+     * @param to offset of the end of a line, exclusive
+     * @param builder
+     */
+    void parse(byte[] bytes, int from, int to, StarCatalogue.Builder builder) {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineEnd(bytes, lineStart, to);
+            if (lineEnd > lineStart) {
+                parseLine(bytes, lineStart, lineEnd, builder);
+            }
+            lineStart = nextLine(bytes, lineEnd, to);
+        }
+    }
+
+    // locates the fields we use in the line, then builds the star like HygDatabaseLoader
+    private void parseLine(byte[] bytes, int lineStart, int lineEnd, StarCatalogue.Builder builder) {
+        Arrays.fill(fieldStart, lineEnd);
+        Arrays.fill(fieldEnd, lineEnd);
+        int start = lineStart;
+        for (int column = 0; column < scannedColumns && start <= lineEnd; ++column) {
+            int end = start;
+            while (end < lineEnd && bytes[end] != ',') {
+                ++end;
+            }
+            int slot = slotOfColumn[column];
+            if (slot >= 0) {
+                fieldStart[slot] = start;
+                fieldEnd[slot] = end;
+            }
+            start = end + 1;
+        }
+
+        int hipparcosId = isEmpty(HIP) ? 0 : parseInt(bytes, fieldStart[HIP], fieldEnd[HIP]);
+
+        String name;
+        if (!isEmpty(PROPER)) {
+            name = string(bytes, PROPER);
+        } else {
+            name = designation(bytes);
+        }
+
+        double ra = parseDouble(bytes, fieldStart[RARAD], fieldEnd[RARAD]);
+        double dec = parseDouble(bytes, fieldStart[DECRAD], fieldEnd[DECRAD]);
+        float magnitude = isEmpty(MAG) ? 0 : (float) parseDouble(bytes, fieldStart[MAG], fieldEnd[MAG]);
+        float colorIndex = isEmpty(CI) ? 0 : (float) parseDouble(bytes, fieldStart[CI], fieldEnd[CI]);
+
+        builder.addStar(hipparcosId, name, ra, dec, magnitude, colorIndex);
+    }
+
+    private boolean isEmpty(int slot) {
+        return fieldStart[slot] == fieldEnd[slot];
+    }
+
+    private String string(byte[] bytes, int slot) {
+        return new String(bytes, fieldStart[slot], fieldEnd[slot] - fieldStart[slot], StandardCharsets.US_ASCII);
+    }
+
+    // "bayer con", or "? con" without Bayer designation, the same String object for equal names
+    private String designation(byte[] bytes) {
+        int hash = isEmpty(BAYER) ? '?' : hash(bytes, fieldStart[BAYER], fieldEnd[BAYER], 0);
+        hash = hash(bytes, fieldStart[CON], fieldEnd[CON], 31 * hash + ' ');
+        int mask = designations.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        for (String d = designations[slot]; d != null; d = designations[slot]) {
+            if (isDesignation(d, bytes)) {
+                return d;
+            }
+            slot = (slot + 1) & mask;
+        }
+        String designation = isEmpty(BAYER)
+                ? "?" + " " + string(bytes, CON)
+                : string(bytes, BAYER) + " " + string(bytes, CON);
+        designations[slot] = designation;
+        if (2 * ++designationCount > designations.length) {
+            String[] old = designations;
+            designations = new String[2 * old.length];
+            designationCount = 0;
+            for (String d : old) {
+                if (d != null) {
+                    put(d);
+                }
+            }
+        }
+        return designation;
+    }
+
+    // adds a designation while rehashing, its hash is the one of the bytes it was made of
+    private void put(String designation) {
+        int hash = 0;
+        for (int i = 0; i < designation.length(); ++i) {
+            hash = 31 * hash + designation.charAt(i);
+        }
+        int mask = designations.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (designations[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        designations[slot] = designation;
+        ++designationCount;
+    }
+
+    // same as String.hashCode(), continued from hash
+    private static int hash(byte[] bytes, int from, int to, int hash) {
+        for (int i = from; i < to; ++i) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    // true iff designation is the name designation() makes of the current line
+    private boolean isDesignation(String designation, byte[] bytes) {
+        int i = 0;
+        if (isEmpty(BAYER)) {
+            if (designation.isEmpty() || designation.charAt(i++) != '?') {
+                return false;
+            }
+        } else {
+            for (int b = fieldStart[BAYER]; b < fieldEnd[BAYER]; ++b, ++i) {
+                if (i == designation.length() || designation.charAt(i) != bytes[b]) {
+                    return false;
+                }
+            }
+        }
+        if (i == designation.length() || designation.charAt(i++) != ' ') {
+            return false;
+        }
+        for (int b = fieldStart[CON]; b < fieldEnd[CON]; ++b, ++i) {
+            if (i == designation.length() || designation.charAt(i) != bytes[b]) {
+                return false;
+            }
+        }
+        return i == designation.length();
+    }
+
+    /**
+     * @param bytes
+     * @param from
+     * @param to
+     * @return the integer written in ASCII in [from, to[
+     * @throws NumberFormatException as Integer.parseInt if it is not an integer
+     */
+    static int parseInt(byte[] bytes, int from, int to) {
+        boolean negative = from < to && bytes[from] == '-';
+        int i = (negative || (from < to && bytes[from] == '+')) ? from + 1 : from;
+        if (i == to || to - i > 9) {
+            // empty, or maybe too large, Integer.parseInt decides
+            return Integer.parseInt(new String(bytes, from, to - from, StandardCharsets.US_ASCII));
+        }
+        int value = 0;
+        for (; i < to; ++i) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(new String(bytes, from, to - from, StandardCharsets.US_ASCII));
+            }
+            value = 10 * value + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decimal numbers whose digits fit in the 53 bits of a double mantissa are computed directly,
+     * as one correctly rounded division or multiplication of two exact doubles. Those of up to 18 digits
+     * are computed with the algorithm of Eisel and Lemire (Number Parsing at a Gigabyte per Second).
+     * Anything else (more digits, large or malformed exponents, other notations) goes through Double.parseDouble,
+     * so the result is always the same as the one of Double.parseDouble.
+     * @param bytes
+     * @param from
+     * @param to
+     * @return the double written in ASCII in [from, to[
+     * @throws NumberFormatException as Double.parseDouble if it is not a number
+     */
+    static double parseDouble(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        boolean anyDigit = false;
+        int digits = 0;
+        int decimals = 0;
+        boolean point = false;
+        for (; i < to; ++i) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                if (digits >= 18) {
+                    return slowParseDouble(bytes, from, to);
+                }
+                mantissa = 10 * mantissa + (b - '0');
+                anyDigit = true;
+                // leading zeros are not significant
+                if (mantissa != 0) {
+                    ++digits;
+                }
+                if (point) {
+                    ++decimals;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else if (b == 'e' || b == 'E') {
+                break;
+            } else {
+                return slowParseDouble(bytes, from, to);
+            }
+        }
+        int exponent = -decimals;
+        if (i < to) {
+            // exponent part, i is on the e: an optional sign and at most 4 digits, anything else
+            // (suffixes, spaces, exponents that would overflow an int) is left to Double.parseDouble
+            ++i;
+            boolean negativeExponent = i < to && bytes[i] == '-';
+            if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+                ++i;
+            }
+            if (i == to || to - i > 4) {
+                return slowParseDouble(bytes, from, to);
+            }
+            int e = 0;
+            for (; i < to; ++i) {
+                int digit = bytes[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return slowParseDouble(bytes, from, to);
+                }
+                e = 10 * e + digit;
+            }
+            if (e > 2 * MAX_POWER) {
+                return slowParseDouble(bytes, from, to);
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (!anyDigit) {
+            return slowParseDouble(bytes, from, to);
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (mantissa <= MAX_EXACT_MANTISSA && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            value = exponent < 0
+                    ? mantissa / POWERS_OF_TEN[-exponent]
+                    : mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            value = eiselLemire(mantissa, exponent);
+            if (Double.isNaN(value)) {
+                return slowParseDouble(bytes, from, to);
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Port of compute_float of fast_float for doubles, restricted to normal results
+     * @param w exact decimal significand, > 0
+     * @param q decimal exponent
+     * @return the double closest to w * 10^q, or NaN if it can't be computed here
+     */
+    private static double eiselLemire(long w, int q) {
+        if (q < MIN_POWER || q > MAX_POWER) {
+            return Double.NaN;
+        }
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+
+        // 64 high bits of w * 5^q, and the next 64 ones when these are all ones
+        long high = unsignedMultiplyHigh(w, POWERS_OF_FIVE_HIGH[q - MIN_POWER]);
+        long low = w * POWERS_OF_FIVE_HIGH[q - MIN_POWER];
+        long precisionMask = -1L >>> 55;
+        if ((high & precisionMask) == precisionMask) {
+            long secondHigh = unsignedMultiplyHigh(w, POWERS_OF_FIVE_LOW[q - MIN_POWER]);
+            low += secondHigh;
+            if (Long.compareUnsigned(secondHigh, low) > 0) {
+                ++high;
+            }
+        }
+
+        int upperBit = (int) (high >>> 63);
+        int shift = upperBit + 64 - 52 - 3;
+        long mantissa = high >>> shift;
+        int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperBit - lz + 1023;
+        if (power2 <= 0) {
+            // subnormal
+            return Double.NaN;
+        }
+        // exactly between two doubles: round to even
+        if (Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1
+                && (mantissa << shift) == high) {
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << 52)) {
+            mantissa = 1L << 52;
+            ++power2;
+        }
+        mantissa &= ~(1L << 52);
+        if (power2 >= 0x7FF) {
+            return Double.NaN;
+        }
+        return Double.longBitsToDouble(mantissa | ((long) power2 << 52));
+    }
+
+    // high 64 bits of the unsigned 128 bits product of a and b
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    private static double slowParseDouble(byte[] bytes, int from, int to) {
+        return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.US_ASCII));
+    }
+}
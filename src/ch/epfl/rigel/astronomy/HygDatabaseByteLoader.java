@@ -0,0 +1,101 @@
+package ch.epfl.rigel.astronomy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Loads the same stars as HygDatabaseLoader, but parses the file from its bytes instead of
+ * decoding it to lines and splitting these into strings.
+ * <p>
+ *     The columns are found by name in the header line, see HygCsvParser.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public enum HygDatabaseByteLoader implements StarCatalogue.Loader {
+    INSTANCE(false),
+    /**
+     * Same stars in the same order, the file being cut in chunks of whole lines parsed in parallel
+     * on the common fork join pool, then appended one after the other to the builder
+     */
+    PARALLEL(true);
+
+    // smallest chunk worth a task, about 2000 stars of hygdata_v3.csv
+    private static final int MIN_CHUNK_BYTES = 1 << 19;
+    // a few chunks per core so that a slow one doesn't hold the others
+    private static final int CHUNKS_PER_CORE = 4;
+
+    private final boolean parallel;
+
+    HygDatabaseByteLoader(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    @Override
+    public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
+        byte[] bytes;
+        try (InputStream stream = inputStream) {
+            bytes = stream.readAllBytes();
+        }
+        int chunkCount = 1;
+        int cores = Runtime.getRuntime().availableProcessors();
+        // on a single core, chunks would only add the cost of merging them
+        if (parallel && cores > 1) {
+            chunkCount = Math.max(1, Math.min(bytes.length / MIN_CHUNK_BYTES, CHUNKS_PER_CORE * cores));
+        }
+        load(bytes, builder, chunkCount);
+    }
+
+    /**
+     * Package private so that tests can force the number of chunks
+     * @param bytes content of the file
+     * @param builder
+     * @param chunkCount number of chunks, the ones that would be empty are dropped
+     * @throws IOException if a column is missing
+     */
+    static void load(byte[] bytes, StarCatalogue.Builder builder, int chunkCount) throws IOException {
+        if (bytes.length == 0) {
+            return;
+        }
+        int headerEnd = HygCsvParser.lineEnd(bytes, 0, bytes.length);
+        // checks the header once before starting any task
+        HygCsvParser parser = new HygCsvParser(bytes, 0, headerEnd);
+        int bodyStart = HygCsvParser.nextLine(bytes, headerEnd, bytes.length);
+
+        if (chunkCount <= 1) {
+            parser.parse(bytes, bodyStart, bytes.length, builder);
+            return;
+        }
+
+        // chunk c is [bounds[c], bounds[c+1][, each bound being moved forward to the start of a line
+        int[] bounds = new int[chunkCount + 1];
+        long bodyLength = bytes.length - bodyStart;
+        bounds[0] = bodyStart;
+        for (int c = 1; c < chunkCount; ++c) {
+            int bound = Math.max(bounds[c - 1], (int) (bodyStart + bodyLength * c / chunkCount));
+            bounds[c] = (bound == bodyStart || bound == bytes.length)
+                    ? bound
+                    : HygCsvParser.nextLine(bytes, HygCsvParser.lineEnd(bytes, bound, bytes.length), bytes.length);
+        }
+        bounds[chunkCount] = bytes.length;
+
+        // the parser is not thread safe, each chunk has its own
+        List<StarCatalogue.Builder> chunks = IntStream.range(0, chunkCount)
+                .parallel()
+                .mapToObj(c -> {
+                    StarCatalogue.Builder chunk = new StarCatalogue.Builder();
+                    if (bounds[c] < bounds[c + 1]) {
+                        new HygCsvParser(parser).parse(bytes, bounds[c], bounds[c + 1], chunk);
+                    }
+                    return chunk;
+                })
+                .collect(Collectors.toList());
+
+        for (StarCatalogue.Builder chunk : chunks) {
+            builder.addStars(chunk);
+        }
+    }
+}
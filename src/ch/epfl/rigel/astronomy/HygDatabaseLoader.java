@@ -1,7 +1,5 @@
 package ch.epfl.rigel.astronomy;
 
-import ch.epfl.rigel.coordinates.EquatorialCoordinates;
-
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,10 +26,10 @@ public enum HygDatabaseLoader implements StarCatalogue.Loader {
             String line;
             int hipparcosId;
             String name;
-            EquatorialCoordinates equatorialPos;
+            double ra;
+            double dec;
             float magnitude;
             float colorIndex;
-            Star currentStar;
 
             // we consume first row because it contains only headers
             String headerLine = buffer.readLine();
@@ -63,7 +61,8 @@ public enum HygDatabaseLoader implements StarCatalogue.Loader {
                 }
 
                 //assigning equatorial coordinates found in position 23 and 24 of line, never empty!
-                equatorialPos = EquatorialCoordinates.of(Double.parseDouble(starVal[23]), Double.parseDouble(starVal[24]));
+                ra = Double.parseDouble(starVal[23]);
+                dec = Double.parseDouble(starVal[24]);
 
                 // assigning magnitude found in position 13 of line
                 if (!starVal[13].isEmpty()) {
@@ -80,9 +79,8 @@ public enum HygDatabaseLoader implements StarCatalogue.Loader {
                     colorIndex = 0;
                 }
 
-                currentStar = new Star(hipparcosId, name, equatorialPos, magnitude, colorIndex);
-                // finally we add star to the starList inside builder.
-                builder.addStar(currentStar);
+                // finally we add star to the columns of the builder, the Star object is only created when needed
+                builder.addStar(hipparcosId, name, ra, dec, magnitude, colorIndex);
 
             }
 
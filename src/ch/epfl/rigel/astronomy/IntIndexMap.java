@@ -0,0 +1,108 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Map from int keys to non-negative int values (indices), without boxing.
+ * <p>
+ *     Open addressing with linear probing in two parallel arrays, whose capacity is always a power of two
+ *     at least twice the number of entries. Package private, used to find stars by Hipparcos number.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class IntIndexMap {
+
+    // value of a free slot, valid values are >= 0
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size = 0;
+
+    /**
+     * @param expectedSize number of entries expected, the map grows past it if needed
+     */
+    IntIndexMap(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0);
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, FREE);
+    }
+
+    /**
+     * @param key
+     * @return value associated to key, or -1 if there is none
+     */
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return FREE;
+    }
+
+    /**
+     * Associates value to key, unless key already has a value
+     * @param key
+     * @param value >= 0
+     * @return true if the value was added
+     * @throws IllegalArgumentException if value is negative
+     */
+    boolean putIfAbsent(int key, int value) {
+        Preconditions.checkArgument(value >= 0);
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != FREE) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        ++size;
+        return true;
+    }
+
+    /**
+     * @return number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    // doubles the capacity and re-inserts every entry
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new int[2 * oldValues.length];
+        Arrays.fill(values, FREE);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != FREE) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // spreads consecutive keys (Hipparcos numbers often are) over the table
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
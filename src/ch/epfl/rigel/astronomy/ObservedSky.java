@@ -3,8 +3,11 @@ package ch.epfl.rigel.astronomy;
 import ch.epfl.rigel.coordinates.*;
 import ch.epfl.rigel.math.EuclidianDistance;
 
+import java.nio.DoubleBuffer;
 import java.time.ZonedDateTime;
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 /**
  *
@@ -16,16 +19,20 @@ import java.util.*;
 
 public class ObservedSky {
 
+    private final SkyState state;
+    private final StereographicProjection currentProjection;
     private final StarCatalogue currentCatalogue;
     private final Sun currentSun;
     private final Moon currentMoon;
     private final CartesianCoordinates sunCoordinates, moonCoordinates;
     private final Planet[] planets = new Planet[7];
-    private final Star[] stars;
     // we store planets and stars in an array
     private final double[] planetCoordinates = new double[14];
     private final double[] starCoordinates;
-
+    // indices of the projected stars, null when they all are
+    private final int[] projectedStars;
+    // built on the first search, see starGrid()
+    private StarGrid starGrid;
 
 
 
@@ -39,70 +46,110 @@ public class ObservedSky {
      */
     public ObservedSky(ZonedDateTime when, GeographicCoordinates where,
                        StereographicProjection projection, StarCatalogue catalogue){
+        this(new SkyState(when, where, catalogue), projection);
+    }
+
+    /**
+     * Projects an already computed sky state: only the projection is done here, so that a change of
+     * projection alone does not recompute the positions of the Sun, the Moon, the planets and the stars
+     * @param state
+     * @param projection
+     */
+    public ObservedSky(SkyState state, StereographicProjection projection){
+        this(state, projection, Math.PI);
+    }
+
+    /**
+     * Same as above, but only the stars that may be less than cullRadius away from the center of the
+     * projection are projected, i.e. converted and projected, as well as all the stars of asterisms.
+     * The others have NaN coordinates, and are not among the projected stars.
+     * @param state
+     * @param projection
+     * @param cullRadius angular radius, in radians, of the cap around the center of the projection
+     *                   whose stars are projected, all stars are when it is at least PI
+     */
+    public ObservedSky(SkyState state, StereographicProjection projection, double cullRadius){
+        this(state, projection, cullRadius, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Same as above, but only the stars whose magnitude is at most magnitudeLimit are projected, apart
+     * from the stars of asterisms which always are. As the stars of each cell are sorted by magnitude,
+     * the stars fainter than the limit cost nothing.
+     * @param state
+     * @param projection
+     * @param cullRadius
+     * @param magnitudeLimit
+     */
+    public ObservedSky(SkyState state, StereographicProjection projection, double cullRadius, double magnitudeLimit){
 
-        this.currentCatalogue = catalogue;
-        this.stars = new Star[catalogue.stars().size()];
+        this.state = state;
+        this.currentProjection = projection;
+        this.currentCatalogue = state.catalogue();
         //starCoordinates must have double size of actual number of stars
-        this.starCoordinates = new double[catalogue.stars().size()*2];
-        // temporary variables
-        EquatorialCoordinates tempEquatorial;
-        HorizontalCoordinates tempHorizontal;
+        this.starCoordinates = new double[currentCatalogue.starCount()*2];
 
-        // using provided information, calculate projected position in the plane of all celestial objects, namely:
-        // the Sun, the Moon, the planets of the system solar - except the Earth - and the stars of the catalog.
         /**
-         * Objects for which calculations made:
+         * Objects for which projections made:
          * SUN
          * MOON
          * ALL PLANETS \ EARTH
          */
-        // Calculation for sun
-        this.currentSun = SunModel.SUN.at(Epoch.J2010.daysUntil(when),new EclipticToEquatorialConversion(when));
-        tempEquatorial = new EclipticToEquatorialConversion(when).apply(this.currentSun.eclipticPos());
-        tempHorizontal = new EquatorialToHorizontalConversion(when,where).apply(tempEquatorial);
-        this.sunCoordinates = projection.apply(tempHorizontal);
-
-
-        //Calculation for moon
-        this.currentMoon = MoonModel.MOON.at(Epoch.J2010.daysUntil(when),new EclipticToEquatorialConversion(when));
-        tempHorizontal = new EquatorialToHorizontalConversion(when,where).apply(this.currentMoon.equatorialPos());
-        this.moonCoordinates = projection.apply(tempHorizontal);
-
-
-        int i = 0;
-        int j = 0;
-        //Calculation for all planets except for earth, we loop through all planetModel instances
-        for(PlanetModel P: PlanetModel.values()){
-            // iterate through all enums and add their projection to the array
-            if(!P.getFrenchName().equals("Terre")){
-                final Planet currentPlanet; // we make sure that once currentPlanet is passed into list, list members are immutable
-                CartesianCoordinates projectedCoordinate;
-                currentPlanet = P.at(Epoch.J2010.daysUntil(when),new EclipticToEquatorialConversion(when));
-                tempHorizontal = new EquatorialToHorizontalConversion(when,where).apply(currentPlanet.equatorialPos());
-                projectedCoordinate = projection.apply(tempHorizontal);
-                planets[j] = currentPlanet;
-                planetCoordinates[i] = projectedCoordinate.x();
-                planetCoordinates[i+1] = projectedCoordinate.y();
-                ++j;
-                i+=2;
-            }
+        this.currentSun = state.sun();
+        this.sunCoordinates = projection.apply(state.sunHorizontalPos());
+
+        this.currentMoon = state.moon();
+        this.moonCoordinates = projection.apply(state.moonHorizontalPos());
+
+        for(int j = 0; j < planets.length; ++j){
+            CartesianCoordinates projectedCoordinate = projection.apply(state.planetHorizontalPos(j));
+            planets[j] = state.planet(j);
+            planetCoordinates[2*j] = projectedCoordinate.x();
+            planetCoordinates[2*j+1] = projectedCoordinate.y();
         }
 
-        int a = 0;
-        int b = 0;
-        //Calculation for stars of catalogue
-        for(Star s:catalogue.stars()){
-            Star currentStar = s;
-            CartesianCoordinates projectedCoordinate;
-            tempHorizontal = new EquatorialToHorizontalConversion(when,where).apply(s.equatorialPos());
-            projectedCoordinate = projection.apply(tempHorizontal);
-            stars[a] = currentStar;
-            starCoordinates[b] = projectedCoordinate.x();
-            starCoordinates[b+1] = projectedCoordinate.y();
-            ++a;
-            b+=2;
+        //Projection of the stars of the cells around the center, in batches from the horizontal coordinates of the state
+        //and of each cell only its stars brighter than the limit, which come first
+        SkyCells cells = state.cells();
+        int[] blocks;
+        if(cullRadius >= Math.PI){
+            blocks = cells.allBlocks();
+        }
+        else{
+            EquatorialCoordinates center = state.toEquatorial(projection.center());
+            blocks = cells.blocksInCap(center.ra(), center.dec(), cullRadius);
+        }
+        int[] ends = new int[blocks.length];
+        int projectedCount = 0;
+        for(int k = 0; k < blocks.length; ++k){
+            ends[k] = cells.brighterEnd(blocks[k], magnitudeLimit);
+            projectedCount += ends[k] - cells.blockStart(blocks[k]);
+        }
+        if(projectedCount == currentCatalogue.starCount()){
+            this.projectedStars = null;
         }
+        else{
+            this.projectedStars = cells.starsIn(blocks, ends);
+            Arrays.fill(starCoordinates, Double.NaN);
+        }
+        state.projectStars(projection, starCoordinates, blocks, ends);
+
+    }
+
+    /**
+     *
+     * @return sky state this sky is a projection of, to be reused by other projections
+     */
+    public SkyState state(){
+        return state;
+    }
 
+    /**
+     *
+     * @return projection the positions of this sky are in
+     */
+    public StereographicProjection projection(){
+        return currentProjection;
     }
 
     /**
@@ -157,7 +204,7 @@ public class ObservedSky {
      * @return immutable array of star instances
      */
     public Star[] stars(){
-        return Arrays.copyOf(stars,stars.length);
+        return currentCatalogue.stars().toArray(new Star[0]);
     }
 
     /**
@@ -169,6 +216,137 @@ public class ObservedSky {
     }
 
 
+    /**
+     * Unlike planets() and stars(), the accessors below never copy, they are meant for per-frame loops
+     * @return number of planets in the observed sky
+     */
+    public int planetCount(){
+        return planets.length;
+    }
+
+    /**
+     *
+     * @param index
+     * @return planet at given index, same order as planets()
+     */
+    public Planet planet(int index){
+        return planets[index];
+    }
+
+    /**
+     *
+     * @param index
+     * @return projected x coordinate of the planet at given index
+     */
+    public double planetX(int index){
+        return planetCoordinates[2*index];
+    }
+
+    /**
+     *
+     * @param index
+     * @return projected y coordinate of the planet at given index
+     */
+    public double planetY(int index){
+        return planetCoordinates[2*index+1];
+    }
+
+    /**
+     *
+     * @return number of stars in the observed sky
+     */
+    public int starCount(){
+        return currentCatalogue.starCount();
+    }
+
+    /**
+     * the star is instantiated by the catalogue on its first access
+     * @param index
+     * @return star at given index, same order as stars() and as the catalogue
+     */
+    public Star star(int index){
+        return currentCatalogue.star(index);
+    }
+
+    /**
+     *
+     * @param index
+     * @return magnitude of the star at given index, read from the catalogue columns without instantiating the star
+     */
+    public double starMagnitude(int index){
+        return currentCatalogue.starMagnitude(index);
+    }
+
+    /**
+     *
+     * @param index
+     * @return color temperature of the star at given index, read from the catalogue columns without instantiating the star
+     */
+    public int starColorTemperature(int index){
+        return currentCatalogue.starColorTemperature(index);
+    }
+
+    /**
+     *
+     * @param index
+     * @return bucket of the color temperature of the star at given index, see Star.colorTemperatureBucket()
+     */
+    public int starColorBucket(int index){
+        return currentCatalogue.starColorBucket(index);
+    }
+
+    /**
+     *
+     * @return number of stars projected, all of them unless the sky was culled or limited in magnitude
+     */
+    public int projectedStarCount(){
+        return projectedStars == null ? starCount() : projectedStars.length;
+    }
+
+    /**
+     * Projected stars are not in catalogue order when not all of them are
+     * @param k in [0, projectedStarCount()[
+     * @return index of the kth projected star, to be given to the other accessors
+     */
+    public int projectedStar(int k){
+        return projectedStars == null ? k : projectedStars[k];
+    }
+
+    /**
+     *
+     * @param index
+     * @return projected x coordinate of the star at given index, NaN if it was not projected
+     */
+    public double starX(int index){
+        return starCoordinates[2*index];
+    }
+
+    /**
+     *
+     * @param index
+     * @return projected y coordinate of the star at given index, NaN if it was not projected
+     */
+    public double starY(int index){
+        return starCoordinates[2*index+1];
+    }
+
+    /**
+     *
+     * @return read-only view (no copy) of planet coordinates, laid out as in planetPositions()
+     */
+    public DoubleBuffer planetPositionsView(){
+        return DoubleBuffer.wrap(planetCoordinates).asReadOnlyBuffer();
+    }
+
+    /**
+     *
+     * @return read-only view (no copy) of star coordinates, laid out as in starPositions()
+     */
+    public DoubleBuffer starPositionsView(){
+        return DoubleBuffer.wrap(starCoordinates).asReadOnlyBuffer();
+    }
+
+
     /**
      *
      * @return set of asterisms in catalogue
@@ -188,77 +366,59 @@ public class ObservedSky {
 
 
     /**
-     * We cycle through the arrays and add to an Hashmap only the celestial objects in
-     * the desired radius. The we find the minimum in that HashMap.
-     * We handle the case of collision of more than one objectClosestTo in an arbitrary manner
+     * The stars are searched in a grid of their positions, built on the first call, the planets, the Sun
+     * and the Moon being few enough to be checked one by one. Allocates nothing once the grid is built.
+     * Among objects at the same distance, planets come first, then stars by catalogue order, then the Sun
+     * and finally the Moon.
      * @param xy
      * @param maxDist
-     * @return closest celestial object to given position and within maxDist
+     * @return closest celestial object to given position and within maxDist, null if there is none
      */
     public CelestialObject objectClosestTo(CartesianCoordinates xy, double maxDist){
 
-        // contains each nearby celestial object with key the object and value the distance
-        Map<CelestialObject, Double> nearbyDistances = new HashMap<>();
+        CelestialObject closest = null;
+        double closestDist = maxDist;
 
         // cycles trough the planets
-        for(int i = 0; i<planetCoordinates.length; i+=2){
-            double currentX = planetCoordinates[i];
-            double currentY = planetCoordinates[i+1];
-            double currentDistance = EuclidianDistance.distance(currentX,currentY,xy.x(),xy.y());
-            //insert the planets inside the circle centered in xy of radius maxDist
-
-            if(currentDistance < maxDist){
-                nearbyDistances.put(planets()[i/2], currentDistance);
+        for(int i = 0; i < planets.length; ++i){
+            double currentDistance = EuclidianDistance.distance(planetX(i),planetY(i),xy.x(),xy.y());
+            if(currentDistance < closestDist){
+                closest = planets[i];
+                closestDist = currentDistance;
             }
         }
 
-        // cycles trough the stars
-        for(int i = 0; i<this.starPositions().length; i+=2){
-            double currentX = starCoordinates[i];
-            double currentY = starCoordinates[i+1];
-            //insert the stars inside the circle centered in xy of radius maxDist
-            double currentDistance = EuclidianDistance.distance(currentX,currentY,xy.x(),xy.y());
-            if(currentDistance < maxDist){
-                nearbyDistances.put( stars()[i/2], currentDistance);
-            }
+        // only the stars in the cells around xy
+        StarGrid grid = starGrid();
+        int closestStar = grid.closestStar(xy.x(), xy.y(), closestDist);
+        if(closestStar >= 0){
+            closest = currentCatalogue.star(closestStar);
+            closestDist = EuclidianDistance.distance(grid.x(closestStar),grid.y(closestStar),xy.x(),xy.y());
         }
 
         // checks Sun and Moon
-        double sunDistance = EuclidianDistance.distance(sunPosition().x(),sunPosition().y(),xy.x(),xy.y());
-        if(sunDistance < maxDist){
-            nearbyDistances.put(sun(), sunDistance);
+        double sunDistance = EuclidianDistance.distance(sunCoordinates.x(),sunCoordinates.y(),xy.x(),xy.y());
+        if(sunDistance < closestDist){
+            closest = currentSun;
+            closestDist = sunDistance;
         }
 
-        double moonDistance = EuclidianDistance.distance(moonPosition().x(),moonPosition().y(),xy.x(),xy.y());
-        if(moonDistance < maxDist){
-            nearbyDistances.put(moon(), moonDistance);
+        double moonDistance = EuclidianDistance.distance(moonCoordinates.x(),moonCoordinates.y(),xy.x(),xy.y());
+        if(moonDistance < closestDist){
+            closest = currentMoon;
         }
 
-        if(nearbyDistances.isEmpty()){
-            return null;
-        }
-        else{
-            //create a list in case there's more than one with the same closest distance
-            CelestialObject[] closestObjects = new CelestialObject[nearbyDistances.size()];
-            int i = 0;
-            //find minimal distance
-            double minDist = Collections.min(nearbyDistances.values());
-            //find Celestial Objects corresponding to that minimal distance
-            for( CelestialObject obj : nearbyDistances.keySet()) {
-                if (minDist == nearbyDistances.get(obj)) {
-                    closestObjects[i] = obj;
-                    ++i;
-                }
-            }
-            // to handle conflicting cases, they should be very few so the performance should stay the same
-            // here we decide to take the first of the competing possible Celestial Objects
-            return closestObjects[0];
-        }
-
-
+        return closest;
     }
 
-
-
-
-}
\ No newline at end of file
+    // the sky is computed off the JavaFX thread and searched on it: two threads racing here build the same
+    // grid, whose fields are all final, so either one can be used
+    private StarGrid starGrid(){
+        StarGrid grid = starGrid;
+        if(grid == null){
+            grid = new StarGrid(starCoordinates, projectedStars);
+            starGrid = grid;
+        }
+        return grid;
+    }
+}
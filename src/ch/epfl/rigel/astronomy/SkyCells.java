@@ -0,0 +1,291 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.Arrays;
+
+/**
+ * Partition of the celestial sphere into cells of about the same area, each holding the stars of a
+ * catalogue it contains, to find the stars around a direction without going through all of them.
+ * <p>
+ *     Cells are bounded by parallels equally spaced in sine of declination and by meridians equally spaced
+ *     in right ascension, so that they all have the same area. Each cell is bounded by the cap, centered on
+ *     the mean direction of its stars, that just contains them all: a cell may only hold stars in a cap if
+ *     its bounding cap meets it.
+ * </p><p>
+ *     Stars of asterisms are not in any cell but in a block of their own, so that asterism lines can always
+ *     be drawn up to both of their ends. Blocks 0 to cellCount()-1 are the cells, block cellCount() is the
+ *     asterism block. The stars of each block are contiguous in the arrays of this class, from the brightest
+ *     to the faintest, so that the stars of a block brighter than a given magnitude are a prefix of it.
+ *     Equally bright stars are in catalogue order. Stars are kept as equatorial unit vectors, so that
+ *     projecting them needs no trigonometry.
+ * </p>
+ * Immutable, built once by the catalogue.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class SkyCells {
+
+    // about this many stars per cell, uniformly spread
+    private static final int STARS_PER_CELL = 64;
+    private static final int MAX_BANDS = 256;
+    // bounding caps are made a bit larger than needed, for the rounding of their computation
+    private static final double RADIUS_MARGIN = 1e-9;
+
+    private final int bands, segments;
+    // stars of block b are stars[blockStart[b]] to stars[blockStart[b+1]-1]
+    private final int[] blockStart;
+    private final int[] stars;
+    // unit vector (cos(dec)cos(ra), cos(dec)sin(ra), sin(dec)) of the star at each position
+    private final double[] x, y, z;
+    private final float[] magnitude;
+    // unit vector of the center and angular radius of the bounding cap of each cell, radius < 0 when empty
+    private final double[] centerX, centerY, centerZ, radius;
+
+    /**
+     * @param starRa right ascension of each star of the catalogue
+     * @param starDec declination of each star of the catalogue
+     * @param starMagnitude magnitude of each star of the catalogue
+     * @param asterismStars true at the index of each star in at least one asterism
+     */
+    SkyCells(double[] starRa, double[] starDec, float[] starMagnitude, boolean[] asterismStars) {
+        int starCount = starRa.length;
+        int cellTarget = Math.max(1, starCount / STARS_PER_CELL);
+        this.bands = (int) Math.max(1, Math.min(MAX_BANDS, Math.round(Math.sqrt(cellTarget / 2.0))));
+        this.segments = 2 * bands;
+        int cellCount = bands * segments;
+
+        // counting sort of the stars by block
+        int[] blockOf = new int[starCount];
+        blockStart = new int[cellCount + 2];
+        for (int i = 0; i < starCount; ++i) {
+            blockOf[i] = asterismStars[i] ? cellCount : cellOf(starRa[i], starDec[i]);
+            ++blockStart[blockOf[i] + 1];
+        }
+        for (int b = 1; b < blockStart.length; ++b) {
+            blockStart[b] += blockStart[b - 1];
+        }
+        stars = new int[starCount];
+        x = new double[starCount];
+        y = new double[starCount];
+        z = new double[starCount];
+        magnitude = new float[starCount];
+        int[] next = Arrays.copyOf(blockStart, cellCount + 1);
+        // the counting sort being stable, going through the stars by magnitude sorts each block by magnitude
+        for (int i : byMagnitude(starMagnitude)) {
+            int k = next[blockOf[i]]++;
+            stars[k] = i;
+            double cosDec = Math.cos(starDec[i]);
+            x[k] = cosDec * Math.cos(starRa[i]);
+            y[k] = cosDec * Math.sin(starRa[i]);
+            z[k] = Math.sin(starDec[i]);
+            magnitude[k] = starMagnitude[i];
+        }
+
+        centerX = new double[cellCount];
+        centerY = new double[cellCount];
+        centerZ = new double[cellCount];
+        radius = new double[cellCount];
+        for (int c = 0; c < cellCount; ++c) {
+            boundCell(c);
+        }
+    }
+
+    // center and radius of the bounding cap of cell c
+    private void boundCell(int c) {
+        if (blockStart[c] == blockStart[c + 1]) {
+            radius[c] = -1;
+            return;
+        }
+        double sumX = 0, sumY = 0, sumZ = 0;
+        for (int k = blockStart[c]; k < blockStart[c + 1]; ++k) {
+            sumX += x[k];
+            sumY += y[k];
+            sumZ += z[k];
+        }
+        double norm = Math.sqrt(sumX * sumX + sumY * sumY + sumZ * sumZ);
+        if (norm == 0) {
+            // stars spread all around, no cap smaller than the sphere
+            centerX[c] = 1;
+            radius[c] = Math.PI;
+            return;
+        }
+        centerX[c] = sumX / norm;
+        centerY[c] = sumY / norm;
+        centerZ[c] = sumZ / norm;
+        double minDot = 1;
+        for (int k = blockStart[c]; k < blockStart[c + 1]; ++k) {
+            minDot = Math.min(minDot, dot(c, x[k], y[k], z[k]));
+        }
+        radius[c] = Math.acos(Math.max(-1, minDot)) + RADIUS_MARGIN;
+    }
+
+    // indices of the stars from the brightest to the faintest, then by index
+    private static int[] byMagnitude(float[] starMagnitude) {
+        // magnitude in the high half, as an int ordered as the floats are, and index in the low half
+        long[] keys = new long[starMagnitude.length];
+        for (int i = 0; i < keys.length; ++i) {
+            int bits = Float.floatToIntBits(starMagnitude[i]);
+            int ordered = bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+            keys[i] = ((long) ordered << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int k = 0; k < keys.length; ++k) {
+            order[k] = (int) keys[k];
+        }
+        return order;
+    }
+
+    // dot product of the center of cell c with the given unit vector
+    private double dot(int c, double x, double y, double z) {
+        return centerX[c] * x + centerY[c] * y + centerZ[c] * z;
+    }
+
+    private int cellOf(double ra, double dec) {
+        int band = (int) Math.floor((Math.sin(dec) + 1) / 2 * bands);
+        int segment = (int) Math.floor(ra / (2 * Math.PI) * segments);
+        return Math.max(0, Math.min(bands - 1, band)) * segments + Math.max(0, Math.min(segments - 1, segment));
+    }
+
+    /**
+     * @return number of cells, which is also the index of the asterism block
+     */
+    int cellCount() {
+        return bands * segments;
+    }
+
+    /**
+     * @return every block, cells and asterisms, in increasing order
+     */
+    int[] allBlocks() {
+        int[] blocks = new int[cellCount() + 1];
+        for (int b = 0; b < blocks.length; ++b) {
+            blocks[b] = b;
+        }
+        return blocks;
+    }
+
+    /**
+     * @param centerRa right ascension of the center of the cap
+     * @param centerDec declination of the center of the cap
+     * @param capRadius angular radius of the cap
+     * @return the cells that may hold stars in the cap and the asterism block, in increasing order
+     */
+    int[] blocksInCap(double centerRa, double centerDec, double capRadius) {
+        if (capRadius >= Math.PI) {
+            return allBlocks();
+        }
+        double cosDec = Math.cos(centerDec);
+        double centerX = cosDec * Math.cos(centerRa), centerY = cosDec * Math.sin(centerRa);
+        double centerZ = Math.sin(centerDec);
+        int cellCount = cellCount();
+        boolean[] inCap = new boolean[cellCount];
+        int count = 1;
+        for (int c = 0; c < cellCount; ++c) {
+            if (radius[c] >= 0) {
+                double reach = capRadius + radius[c];
+                inCap[c] = reach >= Math.PI || dot(c, centerX, centerY, centerZ) >= Math.cos(reach);
+                count += inCap[c] ? 1 : 0;
+            }
+        }
+        int[] blocks = new int[count];
+        int b = 0;
+        for (int c = 0; c < cellCount; ++c) {
+            if (inCap[c]) {
+                blocks[b++] = c;
+            }
+        }
+        blocks[b] = cellCount;
+        return blocks;
+    }
+
+    /**
+     * @param block
+     * @param magnitudeLimit
+     * @return position after the last star of the block whose magnitude is at most magnitudeLimit,
+     * the end of the block for the asterism block, whose stars are all needed
+     */
+    int brighterEnd(int block, double magnitudeLimit) {
+        if (block == cellCount()) {
+            return blockEnd(block);
+        }
+        // first star fainter than the limit
+        int low = blockStart(block), high = blockEnd(block);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (magnitude[middle] <= magnitudeLimit) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param blocks
+     * @param ends for each block, position after the last of its stars wanted
+     * @return indices in the catalogue of the stars from the start of each block to its end, block after block
+     */
+    int[] starsIn(int[] blocks, int[] ends) {
+        int count = 0;
+        for (int k = 0; k < blocks.length; ++k) {
+            count += ends[k] - blockStart(blocks[k]);
+        }
+        int[] starsIn = new int[count];
+        int offset = 0;
+        for (int k = 0; k < blocks.length; ++k) {
+            int length = ends[k] - blockStart(blocks[k]);
+            System.arraycopy(stars, blockStart(blocks[k]), starsIn, offset, length);
+            offset += length;
+        }
+        return starsIn;
+    }
+
+    /**
+     * @param block
+     * @return position, in the arrays of this class, of the first star of the block
+     */
+    int blockStart(int block) {
+        return blockStart[block];
+    }
+
+    /**
+     * @param block
+     * @return position, in the arrays of this class, after the last star of the block
+     */
+    int blockEnd(int block) {
+        return blockStart[block + 1];
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return index in the catalogue of the star at each position
+     */
+    int[] stars() {
+        return stars;
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return first component of the equatorial unit vector of the star at each position
+     */
+    double[] x() {
+        return x;
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return second component of the equatorial unit vector of the star at each position
+     */
+    double[] y() {
+        return y;
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return third component of the equatorial unit vector of the star at each position
+     */
+    double[] z() {
+        return z;
+    }
+}
@@ -0,0 +1,245 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.*;
+import ch.epfl.rigel.math.Trigonometry;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The sky seen from a place at a given time, before projection: the Sun, the Moon, the planets and the
+ * conversion of the stars of the catalogue to horizontal coordinates.
+ * <p>
+ *     This is the part of the observed sky which only depends on when and where. It is computed once and can
+ *     then be projected by as many ObservedSky as there are projections, e.g. while panning. Stars are not
+ *     converted one by one: their conversion and projection are a single rotation of their unit vectors.
+ *     The Sun, the Moon and the planets are converted with the trigonometric functions of
+ *     Trigonometry.DISPLAY, within 1e-14 of the precise ones. Immutable.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public final class SkyState {
+
+    private final ZonedDateTime when;
+    private final GeographicCoordinates where;
+    private final StarCatalogue catalogue;
+    private final Sun sun;
+    private final Moon moon;
+    private final HorizontalCoordinates sunHorizontal, moonHorizontal;
+    private final Planet[] planets = new Planet[7];
+    private final HorizontalCoordinates[] planetHorizontal = new HorizontalCoordinates[7];
+    private final EquatorialToHorizontalConversion equatorialToHorizontal;
+    private final SkyCells cells;
+    // pool the stars are projected on, null when they are in the calling thread
+    private final ForkJoinPool pool;
+
+    /**
+     * Computes the positions of all celestial objects
+     * @param when
+     * @param where
+     * @param catalogue
+     */
+    public SkyState(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue) {
+        this(when, where, catalogue, (ForkJoinPool) null);
+    }
+
+    /**
+     * Same as above, the stars being later projected by ObservedSky in parallel on the
+     * common fork join pool when parallel is true. Only worth it for large catalogues: below a few tens of
+     * thousands of stars, or on a single core, the stars are handled serially anyway. Same results either way.
+     * @param when
+     * @param where
+     * @param catalogue
+     * @param parallel
+     */
+    public SkyState(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue, boolean parallel) {
+        this(when, where, catalogue, parallel ? ForkJoinPool.commonPool() : null);
+    }
+
+    /**
+     * Package private so that benchmarks can choose the number of cores used
+     * @param when
+     * @param where
+     * @param catalogue
+     * @param pool pool the stars are handled on, null to handle them serially
+     */
+    SkyState(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue, ForkJoinPool pool) {
+        this(when, where, catalogue, pool, Trigonometry.DISPLAY);
+    }
+
+    /**
+     * Package private so that benchmarks can compare the trigonometric functions of the conversions of the
+     * Sun, the Moon and the planets, the other constructors taking the display ones, since the positions are
+     * only drawn
+     * @param when
+     * @param where
+     * @param catalogue
+     * @param pool pool the stars are handled on, null to handle them serially
+     * @param trig trigonometric functions of the conversions
+     */
+    SkyState(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue, ForkJoinPool pool,
+             Trigonometry trig) {
+        this.when = when;
+        this.where = where;
+        this.catalogue = catalogue;
+        this.pool = pool;
+
+        // the conversions only depend on when and where, they are shared by all celestial objects
+        double daysSinceJ2010 = Epoch.J2010.daysUntil(when);
+        EclipticToEquatorialConversion eclipticToEquatorial = new EclipticToEquatorialConversion(when, trig);
+        equatorialToHorizontal = new EquatorialToHorizontalConversion(when, where, trig);
+
+        sun = SunModel.SUN.at(daysSinceJ2010, eclipticToEquatorial);
+        sunHorizontal = equatorialToHorizontal.apply(eclipticToEquatorial.apply(sun.eclipticPos()));
+
+        moon = MoonModel.MOON.at(daysSinceJ2010, eclipticToEquatorial);
+        moonHorizontal = equatorialToHorizontal.apply(moon.equatorialPos());
+
+        // all planets except the Earth, in the order of PlanetModel
+        int j = 0;
+        for (PlanetModel p : PlanetModel.values()) {
+            if (!p.getFrenchName().equals("Terre")) {
+                planets[j] = p.at(daysSinceJ2010, eclipticToEquatorial);
+                planetHorizontal[j] = equatorialToHorizontal.apply(planets[j].equatorialPos());
+                ++j;
+            }
+        }
+
+        cells = catalogue.cells();
+    }
+
+    /**
+     * @return time of observation
+     */
+    public ZonedDateTime when() {
+        return when;
+    }
+
+    /**
+     * @return place of observation
+     */
+    public GeographicCoordinates where() {
+        return where;
+    }
+
+    /**
+     * @return catalogue whose stars are observed
+     */
+    public StarCatalogue catalogue() {
+        return catalogue;
+    }
+
+    /**
+     * @return the Sun
+     */
+    public Sun sun() {
+        return sun;
+    }
+
+    /**
+     * @return horizontal coordinates of the Sun
+     */
+    public HorizontalCoordinates sunHorizontalPos() {
+        return sunHorizontal;
+    }
+
+    /**
+     * @return the Moon
+     */
+    public Moon moon() {
+        return moon;
+    }
+
+    /**
+     * @return horizontal coordinates of the Moon
+     */
+    public HorizontalCoordinates moonHorizontalPos() {
+        return moonHorizontal;
+    }
+
+    /**
+     * @return number of planets, the Earth excluded
+     */
+    public int planetCount() {
+        return planets.length;
+    }
+
+    /**
+     * @param index
+     * @return planet at given index, in the order of PlanetModel without the Earth
+     */
+    public Planet planet(int index) {
+        return planets[index];
+    }
+
+    /**
+     * @param index
+     * @return horizontal coordinates of the planet at given index
+     */
+    public HorizontalCoordinates planetHorizontalPos(int index) {
+        return planetHorizontal[index];
+    }
+
+    /**
+     * @param horizontal direction seen at the time and place of this state
+     * @return same direction in equatorial coordinates
+     */
+    EquatorialCoordinates toEquatorial(HorizontalCoordinates horizontal) {
+        return equatorialToHorizontal.inverseApply(horizontal);
+    }
+
+    /**
+     * @return partition of the sky the stars of the catalogue are in
+     */
+    SkyCells cells() {
+        return cells;
+    }
+
+    /**
+     * Projects the brightest stars of the given blocks without instantiating any coordinates object nor calling
+     * any trigonometric function per star. In parallel if the state was computed so.
+     * @param projection
+     * @param xy output, projected x at index 2i and projected y at index 2i+1 for the ith star of the
+     *           catalogue, left untouched for the other stars
+     * @param blocks blocks of cells() whose stars are projected, in increasing order
+     * @param ends for each block, position after its last star projected, a prefix of the block being projected
+     * @throws IllegalArgumentException if xy is not twice as long as the catalogue
+     */
+    void projectStars(StereographicProjection projection, double[] xy, int[] blocks, int[] ends) {
+        Preconditions.checkArgument(xy.length == 2 * cells.stars().length);
+        EquatorialToPlaneRotation rotation = new EquatorialToPlaneRotation(equatorialToHorizontal, projection);
+        int[] starts = new int[blocks.length];
+        for (int k = 0; k < blocks.length; ++k) {
+            starts[k] = cells.blockStart(blocks[k]);
+        }
+        int[] stars = cells.stars();
+        double[] x = cells.x(), y = cells.y(), z = cells.z();
+        forEachRange(starts, ends, (from, to) -> rotation.apply(x, y, z, xy, from, to, stars));
+    }
+
+    // runs action on the positions in [starts[k], ends[k][ for every k, as if they were a single range cut by StarRanges
+    private void forEachRange(int[] starts, int[] ends, StarRanges.RangeAction action) {
+        // offsets[k] is the number of positions in the ranges before range k
+        int[] offsets = new int[starts.length + 1];
+        for (int k = 0; k < starts.length; ++k) {
+            offsets[k + 1] = offsets[k] + ends[k] - starts[k];
+        }
+        StarRanges.forEach(offsets[starts.length], pool, (from, to) -> {
+            // last range starting at or before from
+            int k = Arrays.binarySearch(offsets, from);
+            k = k >= 0 ? k : -k - 2;
+            while (from < to) {
+                while (offsets[k + 1] <= from) {
+                    ++k;
+                }
+                int end = Math.min(to, offsets[k + 1]);
+                int start = starts[k] + from - offsets[k];
+                action.run(start, start + end - from);
+                from = end;
+            }
+        });
+    }
+}
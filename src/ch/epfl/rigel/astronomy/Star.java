@@ -28,7 +28,8 @@ public final class Star extends CelestialObject {
     //stocked in attribute for clarity, even though we could just have color Temperature
     private final float colorIndex;
     private final int colorTemperature;
-    private static final ClosedInterval INTERVAL_COLOR_INDEX = ClosedInterval.of(-0.5, 5.5);
+    // package private, the catalogue checks the color index of the stars it stores without instantiating them
+    static final ClosedInterval INTERVAL_COLOR_INDEX = ClosedInterval.of(-0.5, 5.5);
 
     /**
      * Constructs a star
@@ -48,11 +49,29 @@ public final class Star extends CelestialObject {
         this.colorIndex = (float) Preconditions.checkInInterval(INTERVAL_COLOR_INDEX, colorIndex);
 
         // we can also already calculate color temperature
-        double tmp = 0.92*this.colorIndex;
+        colorTemperature = colorTemperature(this.colorIndex);
+    }
+
+    /**
+     * package private, shared with the catalogue which stores temperatures without instantiating stars
+     * @param colorIndex
+     * @return color temperature in Kelvin degrees corresponding to the given color index, rounded down
+     */
+    static int colorTemperature(float colorIndex) {
+        double tmp = 0.92*colorIndex;
         double T = 4600 * (
                 (1 / (tmp + 1.7)) + (1 / (tmp + 0.62))
         );
-        colorTemperature = (int) T;
+        return (int) T;
+    }
+
+    /**
+     * Temperatures are drawn in steps of 100 K, the bucket of a temperature is the index of its step
+     * @param kelvin color temperature in Kelvin degrees, in [1000, 40000] for every star
+     * @return number of steps of 100 K from 1000 K to the given temperature rounded to the closest step
+     */
+    public static int colorTemperatureBucket(double kelvin) {
+        return (int) Math.round(kelvin / 100.0) - 10;
     }
 
 
@@ -63,6 +82,14 @@ public final class Star extends CelestialObject {
         return hipparcosId;
     }
 
+    /**
+     * package private, lets the catalogue store a star column by column
+     * @return B-V color index of the star
+     */
+    float colorIndex() {
+        return colorIndex;
+    }
+
     /**
      * @return Color temperature in Kelvin degrees, rounded by default
      * (i.e. to the closest inferior integer )
@@ -1,26 +1,46 @@
 package ch.epfl.rigel.astronomy;
 
 import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Star Catalog: map Asterism -->Indeces of its stars
+ * <p>
+ *     Stars are stored column by column in primitive arrays (right ascension, declination, magnitude...)
+ *     so that loops over every star read contiguous memory. Star objects are only instantiated when
+ *     asked for through star() or stars(), and are then kept so that a given index always gives the same star.
+ * </p>
  * @author Alp Ozen (314542)
  * @author Jacopo Ferro (299301)
  */
 public final class StarCatalogue {
 
     // Catalogue object: key is Asterism, each of which has a list of integers (the value)
-    // representing the indices ( corresponding to the position of the star in starList) of the stars in asterism.
+    // representing the indices ( corresponding to the position of the star in the columns) of the stars in asterism.
     private final HashMap<Asterism, List<Integer>> catalogue = new HashMap();
-    // List to store StarList passed to constructor
-    private final List<Star> starList;
-    // star and corresponding index on starList
+    // star and corresponding index in the columns, only for the stars instantiated when the catalogue is built
     private final HashMap<Star, Integer> starIndex = new HashMap<>();
 
+    // columns, index i of each array describes the ith star
+    private final int starCount;
+    private final int[] starHipparcosId;
+    private final String[] starName;
+    private final double[] starRa, starDec;
+    private final float[] starMagnitude, starColorIndex;
+    private final int[] starColorTemperature;
+    // Star.colorTemperatureBucket() of each star, computed once so that drawing a star only reads its color
+    private final short[] starColorBucket;
+    // stars already instantiated, null where not yet
+    private final AtomicReferenceArray<Star> starObjects;
+    private final List<Star> starList = new StarListView();
+    // built on the first sky observed, see cells()
+    private SkyCells cells;
+
 
     /**
      * Our goal here is to return a StarCatalogue based on data from resources folder. We take the given asterism put it as a key and its value is the set of indeces
@@ -31,11 +51,31 @@ public final class StarCatalogue {
      * @throws IllegalArgumentException (trough Preconditions, if asterism contains some stars that are not starList)
      */
     public StarCatalogue(List<Star> stars, List<Asterism> asterisms) {
-        //saves a unmodifiable (copy) list here so we can just return the attribute in the getter
-        this.starList = List.copyOf(stars);
-        // List Star --> index of that star(Integer)
-        for(Star s: starList){
-            starIndex.put(s, starList.indexOf(s));
+        this(new Builder().addStars(stars), asterisms);
+    }
+
+    // every constructor ends up here, columns are trimmed copies of the builder's ones
+    private StarCatalogue(Builder builder, List<Asterism> asterisms) {
+        this.starCount = builder.count;
+        this.starHipparcosId = Arrays.copyOf(builder.hipparcosId, starCount);
+        this.starName = Arrays.copyOf(builder.name, starCount);
+        this.starRa = Arrays.copyOf(builder.ra, starCount);
+        this.starDec = Arrays.copyOf(builder.dec, starCount);
+        this.starMagnitude = Arrays.copyOf(builder.magnitude, starCount);
+        this.starColorIndex = Arrays.copyOf(builder.colorIndex, starCount);
+        this.starColorTemperature = Arrays.copyOf(builder.colorTemperature, starCount);
+        this.starColorBucket = new short[starCount];
+        for(int i = 0; i < starCount; ++i){
+            starColorBucket[i] = (short) Star.colorTemperatureBucket(starColorTemperature[i]);
+        }
+        this.starObjects = new AtomicReferenceArray<>(Arrays.copyOf(builder.starObjects, starCount));
+
+        // Star --> index of that star(Integer), asterisms can only refer to stars that already exist
+        for(int i = 0; i < starCount; ++i){
+            Star s = starObjects.get(i);
+            if(s != null){
+                starIndex.putIfAbsent(s, i);
+            }
         }
         //Put for each star of each asterism the corresponding index of that star
         //so we create catalog  Asterism --> List of indeces of the stars of that asterism
@@ -43,7 +83,7 @@ public final class StarCatalogue {
             //temporary list objects to work with
             List<Integer> indices = new ArrayList();
             for(Star s: a.stars()){
-                Preconditions.checkArgument(starList.contains(s));
+                Preconditions.checkArgument(starIndex.containsKey(s));
                 indices.add(starIndex.get(s));
                 catalogue.put(a, indices);
             }
@@ -52,12 +92,137 @@ public final class StarCatalogue {
     }
 
     /**
-     * @return the whole star list ( immutable )
+     * @return the whole star list ( immutable ), stars are instantiated as they are accessed
      */
     public List<Star> stars() {
         return starList;
     }
 
+    /**
+     * @return number of stars in the catalogue
+     */
+    public int starCount() {
+        return starCount;
+    }
+
+    /**
+     * Instantiates the star on its first access only, later calls return the same object
+     * @param index
+     * @return star at given index, same order as stars()
+     * @throws IndexOutOfBoundsException if index is not in [0, starCount()[
+     */
+    public Star star(int index) {
+        Star s = starObjects.get(index);
+        if(s == null){
+            Star created = new Star(starHipparcosId[index], starName[index],
+                    EquatorialCoordinates.of(starRa[index], starDec[index]),
+                    starMagnitude[index], starColorIndex[index]);
+            // if another thread was faster we keep its star so that identity stays unique
+            s = starObjects.compareAndSet(index, null, created) ? created : starObjects.get(index);
+        }
+        return s;
+    }
+
+    /**
+     * @param index
+     * @return magnitude of the star at given index, without instantiating it
+     */
+    public double starMagnitude(int index) {
+        return starMagnitude[index];
+    }
+
+    /**
+     * @param index
+     * @return color temperature of the star at given index, without instantiating it
+     */
+    public int starColorTemperature(int index) {
+        return starColorTemperature[index];
+    }
+
+    /**
+     * @param index
+     * @return bucket of the color temperature of the star at given index, see Star.colorTemperatureBucket()
+     */
+    public int starColorBucket(int index) {
+        return starColorBucket[index];
+    }
+
+    /**
+     * @param index
+     * @return Hipparcos number of the star at given index, without instantiating it
+     */
+    public int starHipparcosId(int index) {
+        return starHipparcosId[index];
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return right ascension of each star, same order as stars()
+     */
+    double[] starRa() {
+        return starRa;
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return declination of each star, same order as stars()
+     */
+    double[] starDec() {
+        return starDec;
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return name of each star, same order as stars()
+     */
+    String[] starName() {
+        return starName;
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return Hipparcos number of each star, same order as stars()
+     */
+    int[] starHipparcosId() {
+        return starHipparcosId;
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return magnitude of each star, same order as stars()
+     */
+    float[] starMagnitude() {
+        return starMagnitude;
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return color index of each star, same order as stars()
+     */
+    float[] starColorIndex() {
+        return starColorIndex;
+    }
+
+    /**
+     * Package private, used by the sky states to only compute the stars that can be seen.
+     * Two threads racing here build the same cells, whose fields are all final, so either one can be used.
+     * @return partition of the sky holding the stars of this catalogue
+     */
+    SkyCells cells() {
+        SkyCells built = cells;
+        if (built == null) {
+            boolean[] asterismStars = new boolean[starCount];
+            for (List<Integer> indices : catalogue.values()) {
+                for (int index : indices) {
+                    asterismStars[index] = true;
+                }
+            }
+            built = new SkyCells(starRa, starDec, starMagnitude, asterismStars);
+            cells = built;
+        }
+        return built;
+    }
+
     /**
      * @return set of asterisms in catalogue (immutable)
      */
@@ -71,23 +236,53 @@ public final class StarCatalogue {
      * @throws IllegalArgumentException ( from Preconditions, if asterism is not on the catalog)
      */
     public List<Integer> asterismIndices(Asterism asterism) {
-        Preconditions.checkArgument(this.asterisms().contains(asterism));
+        // containsKey avoids copying the whole asterism set on every call
+        Preconditions.checkArgument(catalogue.containsKey(asterism));
         return List.copyOf(catalogue.get(asterism));
     }
 
+    // unmodifiable view of the catalogue as a list of stars
+    private final class StarListView extends AbstractList<Star> implements RandomAccess {
+        @Override
+        public Star get(int index) {
+            return star(index);
+        }
+
+        @Override
+        public int size() {
+            return starCount;
+        }
+    }
+
 
     /**
      * Builder of star catalog
+     * <p>
+     *     Stars are added to growing columns, either from an existing Star object or directly from
+     *     their attributes, in which case no Star is instantiated until someone asks for it.
+     * </p>
      */
     public final static class Builder {
-        // Builder has same attributes as StarCatalogue
-        private final List<Star> star_builder;
+        private static final int INITIAL_CAPACITY = 16;
+
+        // Builder has same columns as StarCatalogue, only the first count entries are used
+        private int count = 0;
+        private int[] hipparcosId = new int[INITIAL_CAPACITY];
+        private String[] name = new String[INITIAL_CAPACITY];
+        private double[] ra = new double[INITIAL_CAPACITY];
+        private double[] dec = new double[INITIAL_CAPACITY];
+        private float[] magnitude = new float[INITIAL_CAPACITY];
+        private float[] colorIndex = new float[INITIAL_CAPACITY];
+        private int[] colorTemperature = new int[INITIAL_CAPACITY];
+        private Star[] starObjects = new Star[INITIAL_CAPACITY];
+        // Hipparcos number --> index of the first star added with it, stars without number (0) are not indexed
+        private final IntIndexMap hipparcosIndex = new IntIndexMap(INITIAL_CAPACITY);
+        private final List<Star> starView = new BuilderStarView();
         private final List<Asterism> asterism_builder;
 
 
         // we initialize both lists as empty
         public Builder() {
-            this.star_builder = new ArrayList<Star>();
             this.asterism_builder = new ArrayList<Asterism>();
         }
 
@@ -96,10 +291,101 @@ public final class StarCatalogue {
          * @return adds star to the catalog in construction and returns Builder
          */
         public Builder addStar(Star star) {
-            this.star_builder.add(star);
+            int i = append(star.hipparcosId(), star.name(), star.equatorialPos().ra(), star.equatorialPos().dec(),
+                    (float) star.magnitude(), star.colorIndex());
+            starObjects[i] = star;
             return this;
         }
 
+        /**
+         * Adds a star to the catalog in construction without instantiating it
+         * @param hipparcosId >= 0
+         * @param name non null
+         * @param ra right ascension in radians, [0, 2*PI[
+         * @param dec declination in radians, [-PI/2, PI/2]
+         * @param magnitude
+         * @param colorIndex [-0.5,5.5]
+         * @return Builder
+         * @throws IllegalArgumentException if the arguments would not make a valid Star
+         */
+        public Builder addStar(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex) {
+            // same checks as the Star and EquatorialCoordinates constructors
+            Objects.requireNonNull(name);
+            Preconditions.checkArgument(hipparcosId >= 0);
+            Preconditions.checkArgument(EquatorialCoordinates.isValidRa(ra) && EquatorialCoordinates.isValidDec(dec));
+            Preconditions.checkInInterval(Star.INTERVAL_COLOR_INDEX, colorIndex);
+            append(hipparcosId, name, ra, dec, magnitude, colorIndex);
+            return this;
+        }
+
+        // adds every star of the list, package private shortcut for the StarCatalogue(List, List) constructor
+        Builder addStars(List<Star> stars) {
+            for(Star s: stars){
+                addStar(s);
+            }
+            return this;
+        }
+
+        // appends every star of other, in order, package private to merge builders filled in parallel
+        Builder addStars(Builder other) {
+            ensureCapacity(count + other.count);
+            System.arraycopy(other.hipparcosId, 0, hipparcosId, count, other.count);
+            System.arraycopy(other.name, 0, name, count, other.count);
+            System.arraycopy(other.ra, 0, ra, count, other.count);
+            System.arraycopy(other.dec, 0, dec, count, other.count);
+            System.arraycopy(other.magnitude, 0, magnitude, count, other.count);
+            System.arraycopy(other.colorIndex, 0, colorIndex, count, other.count);
+            System.arraycopy(other.colorTemperature, 0, colorTemperature, count, other.count);
+            System.arraycopy(other.starObjects, 0, starObjects, count, other.count);
+            for (int i = 0; i < other.count; ++i) {
+                if (other.hipparcosId[i] != 0) {
+                    hipparcosIndex.putIfAbsent(other.hipparcosId[i], count + i);
+                }
+            }
+            count += other.count;
+            return this;
+        }
+
+        // grows the columns, at least doubling them, so they can hold minCapacity stars
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > ra.length) {
+                int capacity = Math.max(minCapacity, 2 * ra.length);
+                hipparcosId = Arrays.copyOf(hipparcosId, capacity);
+                name = Arrays.copyOf(name, capacity);
+                ra = Arrays.copyOf(ra, capacity);
+                dec = Arrays.copyOf(dec, capacity);
+                magnitude = Arrays.copyOf(magnitude, capacity);
+                colorIndex = Arrays.copyOf(colorIndex, capacity);
+                colorTemperature = Arrays.copyOf(colorTemperature, capacity);
+                starObjects = Arrays.copyOf(starObjects, capacity);
+            }
+        }
+
+        // appends a row to the columns and returns its index
+        private int append(int hip, String starName, double starRa, double starDec, float mag, float ci) {
+            ensureCapacity(count + 1);
+            hipparcosId[count] = hip;
+            name[count] = starName;
+            ra[count] = starRa;
+            dec[count] = starDec;
+            magnitude[count] = mag;
+            colorIndex[count] = ci;
+            colorTemperature[count] = Star.colorTemperature(ci);
+            if(hip != 0){
+                hipparcosIndex.putIfAbsent(hip, count);
+            }
+            return count++;
+        }
+
+        /**
+         * Constant time lookup, meant for loaders that refer to stars already added by their Hipparcos number
+         * @param hipparcosId
+         * @return index in stars() of the first star added with the given Hipparcos number, -1 if there is none
+         */
+        public int indexOfHipparcos(int hipparcosId) {
+            return hipparcosId == 0 ? -1 : hipparcosIndex.get(hipparcosId);
+        }
+
         /**
          * @param asterism
          * @return adds asterism to the catalog in construction and returns Builder
@@ -113,15 +399,15 @@ public final class StarCatalogue {
          * @return currently built catalog
          */
         public StarCatalogue build() {
-            return new StarCatalogue(star_builder, asterism_builder);
+            return new StarCatalogue(this, asterism_builder);
         }
 
         /**
+         * Stars added without a Star object are instantiated when accessed through this view
          * @return a possibly mutable but not modifiable view of the star list
          */
         public List<Star> stars() {
-            List<Star> view = Collections.unmodifiableList(star_builder);
-            return view;
+            return starView;
         }
 
         /**
@@ -136,6 +422,29 @@ public final class StarCatalogue {
             loader.load(inputStream, this);
             return this;
         }
+
+        // star at given index, instantiated and kept on first access
+        private Star star(int index) {
+            Objects.checkIndex(index, count);
+            if(starObjects[index] == null){
+                starObjects[index] = new Star(hipparcosId[index], name[index],
+                        EquatorialCoordinates.of(ra[index], dec[index]), magnitude[index], colorIndex[index]);
+            }
+            return starObjects[index];
+        }
+
+        // unmodifiable view of the stars added so far
+        private final class BuilderStarView extends AbstractList<Star> implements RandomAccess {
+            @Override
+            public Star get(int index) {
+                return star(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        }
     }
 
 
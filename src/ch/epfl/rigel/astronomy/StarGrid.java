@@ -0,0 +1,148 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.math.EuclidianDistance;
+
+/**
+ * Uniform grid over the projected positions of the stars of one observed sky, to find the stars near a
+ * point of the plane without going through all of them.
+ * <p>
+ *     The grid covers the square [-EXTENT, EXTENT]², i.e. every star less than about 150° away from the
+ *     projection center. The stars projected beyond it, far from anything the canvas can show, are kept
+ *     in a separate list only searched when the searched disc leaves the square. Stars without a finite
+ *     position, i.e. at the antipode of the center, are in neither.
+ * </p>
+ * Immutable, the queries allocate nothing.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class StarGrid {
+
+    // half the side of the square covered by the cells, tan(76°) in the plane of the projection
+    private static final double EXTENT = 4;
+    // about this many stars per cell, uniformly spread
+    private static final int STARS_PER_CELL = 2;
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    private final double[] xy;
+    private final int cellsPerSide;
+    private final double cellsPerUnit;
+    // stars of cell c are cellStars[cellStart[c]] to cellStars[cellStart[c+1]-1]
+    private final int[] cellStart;
+    private final int[] cellStars;
+    private final int[] outsideStars;
+
+    /**
+     * @param xy projected x at index 2i and projected y at index 2i+1 for the ith star, not copied
+     * @param stars indices of the stars in xy to put in the grid, null for all of them
+     */
+    StarGrid(double[] xy, int[] stars) {
+        this.xy = xy;
+        int starCount = stars == null ? xy.length / 2 : stars.length;
+        this.cellsPerSide = (int) Math.max(1, Math.min(MAX_CELLS_PER_SIDE, Math.sqrt(starCount / STARS_PER_CELL)));
+        this.cellsPerUnit = cellsPerSide / (2 * EXTENT);
+
+        // counting sort of the stars by cell, -1 being outside the grid and -2 without any position
+        int[] cellOf = new int[starCount];
+        int[] counts = new int[cellsPerSide * cellsPerSide + 1];
+        int outsideCount = 0;
+        for (int k = 0; k < starCount; ++k) {
+            int i = stars == null ? k : stars[k];
+            double x = xy[2 * i], y = xy[2 * i + 1];
+            if (!Double.isFinite(x) || !Double.isFinite(y)) {
+                cellOf[k] = -2;
+            } else if (Math.abs(x) > EXTENT || Math.abs(y) > EXTENT) {
+                cellOf[k] = -1;
+                ++outsideCount;
+            } else {
+                cellOf[k] = cell(column(x), column(y));
+                ++counts[cellOf[k] + 1];
+            }
+        }
+        cellStart = counts;
+        for (int c = 1; c < cellStart.length; ++c) {
+            cellStart[c] += cellStart[c - 1];
+        }
+        cellStars = new int[cellStart[cellStart.length - 1]];
+        outsideStars = new int[outsideCount];
+        int[] next = new int[cellsPerSide * cellsPerSide];
+        System.arraycopy(cellStart, 0, next, 0, next.length);
+        int outside = 0;
+        for (int k = 0; k < starCount; ++k) {
+            int i = stars == null ? k : stars[k];
+            if (cellOf[k] >= 0) {
+                cellStars[next[cellOf[k]]++] = i;
+            } else if (cellOf[k] == -1) {
+                outsideStars[outside++] = i;
+            }
+        }
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @param maxDist
+     * @return index of the star closest to (x, y) and strictly closer than maxDist, the one of smallest
+     * index among equally close ones, -1 if there is none
+     */
+    int closestStar(double x, double y, double maxDist) {
+        if (!(maxDist > 0)) {
+            return -1;
+        }
+        int closest = -1;
+        double closestDist = maxDist;
+        double minX = x - maxDist, maxX = x + maxDist, minY = y - maxDist, maxY = y + maxDist;
+        if (maxX >= -EXTENT && minX <= EXTENT && maxY >= -EXTENT && minY <= EXTENT) {
+            int fromColumn = column(minX), toColumn = column(maxX);
+            int toRow = column(maxY);
+            for (int row = column(minY); row <= toRow; ++row) {
+                for (int c = cell(fromColumn, row); c <= cell(toColumn, row); ++c) {
+                    for (int k = cellStart[c]; k < cellStart[c + 1]; ++k) {
+                        int star = cellStars[k];
+                        double dist = EuclidianDistance.distance(x(star), y(star), x, y);
+                        if (dist < closestDist || (dist == closestDist && star < closest)) {
+                            closest = star;
+                            closestDist = dist;
+                        }
+                    }
+                }
+            }
+        }
+        // only stars far from the projection center, when the searched disc reaches them
+        if (minX < -EXTENT || maxX > EXTENT || minY < -EXTENT || maxY > EXTENT) {
+            for (int star : outsideStars) {
+                double dist = EuclidianDistance.distance(x(star), y(star), x, y);
+                if (dist < closestDist || (dist == closestDist && star < closest)) {
+                    closest = star;
+                    closestDist = dist;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @param index
+     * @return projected x coordinate of the star at given index
+     */
+    double x(int index) {
+        return xy[2 * index];
+    }
+
+    /**
+     * @param index
+     * @return projected y coordinate of the star at given index
+     */
+    double y(int index) {
+        return xy[2 * index + 1];
+    }
+
+    // column, or row, of the cells containing the given coordinate, clipped to the grid
+    private int column(double coordinate) {
+        int column = (int) Math.floor((coordinate + EXTENT) * cellsPerUnit);
+        return Math.max(0, Math.min(cellsPerSide - 1, column));
+    }
+
+    private int cell(int column, int row) {
+        return row * cellsPerSide + column;
+    }
+}
@@ -0,0 +1,69 @@
+package ch.epfl.rigel.astronomy;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs an action on the whole range of star indices, either serially or cut in disjoint ranges run in
+ * parallel on a fork join pool. Each range writes its own slice of the output arrays, so no
+ * synchronisation is needed, and the results are the same as when run serially.
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class StarRanges {
+
+    // below this many stars a task costs more than it saves, about 1 ms of conversion on one core
+    static final int MIN_STARS_PER_TASK = 1 << 13;
+    // a few ranges per worker so that a slow one doesn't hold the others
+    private static final int TASKS_PER_WORKER = 4;
+
+    /**
+     * Action on the star indices in [from, to[
+     */
+    @FunctionalInterface
+    interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private StarRanges() {}
+
+    /**
+     * @param starCount number of stars, i.e. the range is [0, starCount[
+     * @param pool pool running the ranges, null to run serially on the calling thread
+     * @param action
+     */
+    static void forEach(int starCount, ForkJoinPool pool, RangeAction action) {
+        int workers = pool == null ? 1 : pool.getParallelism();
+        // stays serial on one worker or below the threshold
+        if (workers <= 1 || starCount < 2 * MIN_STARS_PER_TASK) {
+            action.run(0, starCount);
+            return;
+        }
+        int leafSize = Math.max(MIN_STARS_PER_TASK, starCount / (TASKS_PER_WORKER * workers));
+        pool.invoke(new RangeTask(0, starCount, leafSize, action));
+    }
+
+    // halves its range until it is at most leafSize long
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from, to, leafSize;
+        private final RangeAction action;
+
+        private RangeTask(int from, int to, int leafSize, RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                action.run(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, leafSize, action), new RangeTask(middle, to, leafSize, action));
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.math.Angle;
 import ch.epfl.rigel.math.Polynomial;
+import ch.epfl.rigel.math.Trigonometry;
 
 import java.time.ZonedDateTime;
 import java.util.function.Function;
@@ -15,6 +16,9 @@ import static ch.epfl.rigel.astronomy.Epoch.J2000;
  * <p>
  *     Instantiation of the conversion object allows for faster calculation of actual conversion done
  *     in apply()
+ * </p><p>
+ *     The trigonometric functions are the ones of java.lang.Math unless Trigonometry.DISPLAY is chosen, the
+ *     tangent always being the one of java.lang.Math
  * </p>
  * @author Alp Ozen (314542)
  * @author Jacopo Ferro (299301)
@@ -28,12 +32,23 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
     private final double obliqueEcliptique;
     private final double cosObliqueEcliptique;
     private final double sinObliqueEcliptique;
+    private final Trigonometry trig;
 
     /**
      * purpose of constructor is to immediately construct non-dependent values for faster usage in apply method
      * @param when
      */
     public EclipticToEquatorialConversion(ZonedDateTime when) {
+        this(when, Trigonometry.PRECISE);
+    }
+
+    /**
+     * Same as above, with the given trigonometric functions for every conversion
+     * @param when
+     * @param trig trigonometric functions, DISPLAY for positions that are only drawn
+     */
+    public EclipticToEquatorialConversion(ZonedDateTime when, Trigonometry trig) {
+        this.trig = trig;
         this.obliqueEcliptique = E.at(J2000.julianCenturiesUntil(when));
         this.cosObliqueEcliptique = cos(obliqueEcliptique);
         this.sinObliqueEcliptique = sin(obliqueEcliptique);
@@ -45,11 +60,11 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
      */
     @Override
     public EquatorialCoordinates apply(EclipticCoordinates eclipticCoordinates) {
-        double ascension = atan2((sin(eclipticCoordinates.lon()) * cosObliqueEcliptique -
+        double ascension = trig.atan2((trig.sin(eclipticCoordinates.lon()) * cosObliqueEcliptique -
                         tan(eclipticCoordinates.lat()) * sinObliqueEcliptique),
-                cos(eclipticCoordinates.lon()));
-        double declination = asin((sin(eclipticCoordinates.lat()) * cosObliqueEcliptique) +
-                cos(eclipticCoordinates.lat()) * sinObliqueEcliptique * sin(eclipticCoordinates.lon()));
+                trig.cos(eclipticCoordinates.lon()));
+        double declination = trig.asin((trig.sin(eclipticCoordinates.lat()) * cosObliqueEcliptique) +
+                trig.cos(eclipticCoordinates.lat()) * sinObliqueEcliptique * trig.sin(eclipticCoordinates.lon()));
         return EquatorialCoordinates.of(Angle.normalizePositive(ascension), declination);
     }
 
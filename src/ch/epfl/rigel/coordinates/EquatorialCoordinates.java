@@ -35,6 +35,23 @@ public final class EquatorialCoordinates extends SphericalCoordinates {
     }
 
 
+    /**
+     * @param ra right ascension in radians
+     * @return true if entry is a valid right ascension
+     */
+    public static boolean isValidRa(double ra) {
+        return AZIMUT_RAD.contains(ra);
+    }
+
+    /**
+     * @param dec declination in radians
+     * @return true if entry is a valid declination
+     */
+    public static boolean isValidDec(double dec) {
+        return HEIGHT_RAD.contains(dec);
+    }
+
+
     /**
      *
      * @return longitude
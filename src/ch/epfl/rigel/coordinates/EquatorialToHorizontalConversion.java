@@ -2,6 +2,7 @@ package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.astronomy.SiderealTime;
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.Trigonometry;
 
 import java.time.ZonedDateTime;
 import java.util.function.Function;
@@ -13,6 +14,8 @@ import static java.lang.Math.*;
  *<p>
  *     Instantiation of the conversion object allows for faster calculation in actual
  *     conversion done in method apply()
+ *</p><p>
+ *     The trigonometric functions are the ones of java.lang.Math unless Trigonometry.DISPLAY is chosen
  *</p>
  * @author Alp Ozen (314542)
  * @author Jacopo Ferro (299301)
@@ -21,6 +24,7 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
 
     private final double cosPhi, sinPhi;
     private final double sidTime;
+    private final Trigonometry trig;
 
     /**
      * Useful object to instantiate and speed up calculations for apply()
@@ -29,6 +33,17 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
      * @return conversion object
      */
     public EquatorialToHorizontalConversion(ZonedDateTime when, GeographicCoordinates where) {
+        this(when, where, Trigonometry.PRECISE);
+    }
+
+    /**
+     * Same as above, with the given trigonometric functions for every conversion
+     * @param when
+     * @param where
+     * @param trig trigonometric functions, DISPLAY for positions that are only drawn
+     */
+    public EquatorialToHorizontalConversion(ZonedDateTime when, GeographicCoordinates where, Trigonometry trig) {
+        this.trig = trig;
         this.sidTime = SiderealTime.local(when, where);
         this.cosPhi = cos(where.lat());
         this.sinPhi = sin(where.lat());
@@ -45,15 +60,15 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
         // H is in Hours--> converted to rad
         double H = sidTime - equatorialCoordinates.ra();
 
-        double sinEqDec = sin(equatorialCoordinates.dec());
-        double cosEqDec = cos(equatorialCoordinates.dec());
+        double sinEqDec = trig.sin(equatorialCoordinates.dec());
+        double cosEqDec = trig.cos(equatorialCoordinates.dec());
 
-        double h = asin(
-                sinEqDec * sinPhi + cosEqDec * cosPhi * cos(H)
+        double h = trig.asin(
+                sinEqDec * sinPhi + cosEqDec * cosPhi * trig.cos(H)
         );
-        double A = atan2(
-                -cosEqDec * cosPhi * sin(H),
-                sinEqDec - sinPhi * sin(h)
+        double A = trig.atan2(
+                -cosEqDec * cosPhi * trig.sin(H),
+                sinEqDec - sinPhi * trig.sin(h)
         );
         //need to normalize before putting into Horizontal!
         double A_NORM = Angle.normalizePositive(A);
@@ -61,6 +76,39 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
         return HorizontalCoordinates.of(A_NORM, h);
     }
 
+    /**
+     * Inverse conversion, from the horizontal coordinates seen at the time and place of this conversion
+     * @param horizontalCoordinates
+     * @return equatorial coordinates converted from horizontal coordinates
+     */
+    public EquatorialCoordinates inverseApply(HorizontalCoordinates horizontalCoordinates) {
+        // the conversion is its own inverse once the hour angle and the azimuth are swapped
+        double sinAlt = trig.sin(horizontalCoordinates.alt());
+        double cosAlt = trig.cos(horizontalCoordinates.alt());
+        double A = horizontalCoordinates.az();
+
+        double dec = trig.asin(sinAlt * sinPhi + cosAlt * cosPhi * trig.cos(A));
+        double H = trig.atan2(
+                -cosAlt * cosPhi * trig.sin(A),
+                sinAlt - sinPhi * trig.sin(dec)
+        );
+        return EquatorialCoordinates.of(Angle.normalizePositive(sidTime - H), dec);
+    }
+
+    // package private accessors used by the batch conversions of this package
+
+    double siderealTime() {
+        return sidTime;
+    }
+
+    double cosLat() {
+        return cosPhi;
+    }
+
+    double sinLat() {
+        return sinPhi;
+    }
+
     /**
      * @throws UnsupportedOperationException
      */
@@ -0,0 +1,161 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.rigel.Preconditions;
+
+import static java.lang.Math.*;
+
+/**
+ * Batch conversion of equatorial unit vectors directly to the projection plane, without any trigonometry
+ * per star.
+ * <p>
+ *     A direction of right ascension ra and declination dec is the unit vector
+ *     (cos(dec)cos(ra), cos(dec)sin(ra), sin(dec)). Converting it to horizontal coordinates is a rotation
+ *     that only depends on the sidereal time and the latitude of the observer, and the stereographic
+ *     projection only needs the components of the horizontal vector along the two axes of the plane and
+ *     along the center of the projection. Both are folded into one 3x3 matrix computed once, after which
+ *     each star costs 9 multiplications and a division. Same results as EquatorialToHorizontalConversion followed by
+ *     StereographicProjection up to rounding, i.e. to 1e-9 in the part of the plane a canvas can show.
+ * </p><p>
+ *     The stars are converted several at a time with the vector instructions of the processor when the
+ *     kernel of the vector folder is on the classpath and the JVM runs with --add-modules jdk.incubator.vector,
+ *     one at a time otherwise, with exactly the same results. The kernel needs Java 16 or later to compile
+ *     while the project targets Java 11, so only bench/run-benchmarks.sh compiles it: the program itself
+ *     always uses the scalar loop, the kernel is only used by the benchmarks.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public final class EquatorialToPlaneRotation {
+
+    // optional kernel using the vector instructions of the processor, compiled and loaded only where available
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "ch.epfl.rigel.coordinates.VectorRotationKernel";
+    private static final Kernel KERNEL = loadKernel();
+
+    // rows of the matrix giving the x and y axes of the plane and the center of the projection, row major
+    private final double[] matrix;
+
+    /**
+     * @param conversion equatorial to horizontal conversion of the observer at the given time
+     * @param projection projection onto the plane
+     */
+    public EquatorialToPlaneRotation(EquatorialToHorizontalConversion conversion, StereographicProjection projection) {
+        double sinTheta = sin(conversion.siderealTime()), cosTheta = cos(conversion.siderealTime());
+        double sinPhi = conversion.sinLat(), cosPhi = conversion.cosLat();
+        // equatorial to horizontal, rows being the north, east and zenith directions in equatorial coordinates
+        double[][] toHorizontal = {
+                {-sinPhi * cosTheta, -sinPhi * sinTheta, cosPhi},
+                {-sinTheta, cosTheta, 0},
+                {cosPhi * cosTheta, cosPhi * sinTheta, sinPhi}};
+
+        double sinLambda = sin(projection.centerAz()), cosLambda = cos(projection.centerAz());
+        double sinPhi0 = projection.sinCenterAlt(), cosPhi0 = projection.cosCenterAlt();
+        // horizontal to plane, rows being the x and y axes of the plane and the center, in horizontal coordinates
+        double[][] toPlane = {
+                {-sinLambda, cosLambda, 0},
+                {-sinPhi0 * cosLambda, -sinPhi0 * sinLambda, cosPhi0},
+                {cosPhi0 * cosLambda, cosPhi0 * sinLambda, sinPhi0}};
+
+        matrix = new double[9];
+        for (int i = 0; i < 3; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                matrix[3 * i + j] = toPlane[i][0] * toHorizontal[0][j] + toPlane[i][1] * toHorizontal[1][j]
+                        + toPlane[i][2] * toHorizontal[2][j];
+            }
+        }
+    }
+
+    // the vector kernel when it was compiled and the module it needs is in the runtime, null otherwise
+    private static Kernel loadKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the stars are converted with the vector instructions of the processor, false if they
+     * are converted one at a time, same results either way
+     */
+    public static boolean isVectorized() {
+        return KERNEL != null;
+    }
+
+    /**
+     * Converts the unit vectors of index in [from, to[, the projection of index i being written at index
+     * 2*xyIndex[i] and 2*xyIndex[i]+1 of xy, the other entries of xy are left untouched
+     * @param ux first component of each equatorial unit vector
+     * @param uy second component, same length as ux
+     * @param uz third component, same length as ux
+     * @param xy output, projected x and y
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param xyIndex index in xy of each projection, same length as ux
+     * @throws IllegalArgumentException if the array lengths do not match or the range is not inside them
+     */
+    public void apply(double[] ux, double[] uy, double[] uz, double[] xy, int from, int to, int[] xyIndex) {
+        Preconditions.checkArgument(uy.length == ux.length && uz.length == ux.length && xyIndex.length == ux.length);
+        Preconditions.checkArgument(0 <= from && from <= to && to <= ux.length);
+
+        if (KERNEL != null) {
+            KERNEL.apply(matrix, ux, uy, uz, xy, from, to, xyIndex);
+        } else {
+            applyScalar(matrix, ux, uy, uz, xy, from, to, xyIndex);
+        }
+    }
+
+    /**
+     * Same as apply, one star at a time, without checking the arguments. Package private so that the vector
+     * kernel can convert the stars left after its last full vector, and for the tests and benchmarks.
+     * @param matrix rotation, row major
+     */
+    static void applyScalar(double[] matrix, double[] ux, double[] uy, double[] uz, double[] xy,
+                            int from, int to, int[] xyIndex) {
+        double xx = matrix[0], xy0 = matrix[1], xz = matrix[2];
+        double yx = matrix[3], yy = matrix[4], yz = matrix[5];
+        double cx = matrix[6], cy = matrix[7], cz = matrix[8];
+        for (int i = from; i < to; ++i) {
+            double x = ux[i], y = uy[i], z = uz[i];
+            double d = 1.0 / (1 + cx * x + cy * y + cz * z);
+            int j = xyIndex[i];
+            xy[2 * j] = d * (xx * x + xy0 * y + xz * z);
+            xy[2 * j + 1] = d * (yx * x + yy * y + yz * z);
+        }
+    }
+
+    /**
+     * package private, the array is shared and must not be modified
+     * @return the rotation, row major, the rows being the x and y axes of the plane and the center
+     */
+    double[] matrix() {
+        return matrix;
+    }
+
+    /**
+     * Conversion of a range of stars, same contract as applyScalar, which it must match exactly
+     */
+    interface Kernel {
+        void apply(double[] matrix, double[] ux, double[] uy, double[] uz, double[] xy,
+                   int from, int to, int[] xyIndex);
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public int hashCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public boolean equals(Object obj) {
+        throw new UnsupportedOperationException();
+    }
+}
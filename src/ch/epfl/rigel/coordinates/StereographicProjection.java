@@ -1,6 +1,7 @@
 package ch.epfl.rigel.coordinates;
 
 import ch.epfl.rigel.math.Angle;
+import ch.epfl.rigel.math.Trigonometry;
 
 import java.util.Locale;
 import java.util.function.Function;
@@ -13,6 +14,8 @@ import java.util.function.Function;
  * the parallels will be projected as circles on the plane
  * the meridians will be projected into circles too, but in this
  * project we will not draw those, so we won't compute them
+ * </p><p>
+ * The trigonometric functions are the ones of java.lang.Math unless Trigonometry.DISPLAY is chosen
  * </p>
  * @author Alp Ozen (314542)
  * @author Jacopo Ferro (299301)
@@ -22,6 +25,7 @@ public final class StereographicProjection implements Function<HorizontalCoordin
     //they are all in function of the center
     final private double sinPhiCenter, cosPhiCenter, lambdaCenter, phiCenter;
     final private HorizontalCoordinates centerHor;
+    final private Trigonometry trig;
 
     /**
      * we calculate all the necessary attributes here to speed up on apply()
@@ -30,14 +34,31 @@ public final class StereographicProjection implements Function<HorizontalCoordin
      *
      */
     public StereographicProjection(HorizontalCoordinates center) {
+        this(center, Trigonometry.PRECISE);
+    }
+
+    /**
+     * Same as above, with the given trigonometric functions for every projection
+     * @param center
+     * @param trig trigonometric functions, DISPLAY for positions that are only drawn
+     */
+    public StereographicProjection(HorizontalCoordinates center, Trigonometry trig) {
+        this.trig = trig;
 
         //only formulas we can calculate in the constructor
         //i.e. they depend only on the center of the projection
         centerHor = center;
         lambdaCenter = center.az();
         phiCenter = center.alt();
-        cosPhiCenter = Math.cos(phiCenter);
-        sinPhiCenter = Math.sin(phiCenter);
+        cosPhiCenter = trig.cos(phiCenter);
+        sinPhiCenter = trig.sin(phiCenter);
+    }
+
+    /**
+     * @return center of the projection, projected at the origin of the plane
+     */
+    public HorizontalCoordinates center() {
+        return centerHor;
     }
 
     /**
@@ -58,7 +79,7 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         double phi = hor.lat();
 
         double circleCenterY = cosPhiCenter / (
-                Math.sin(phi) + sinPhiCenter);
+                trig.sin(phi) + sinPhiCenter);
         return CartesianCoordinates.of(circleCenterX, circleCenterY);
     }
 
@@ -72,8 +93,8 @@ public final class StereographicProjection implements Function<HorizontalCoordin
         //we only need the phi=latitude of the parallel to project it
 
         double phi = parallel.lat();
-        double cosPhi = Math.cos(phi);
-        double sinPhi = Math.sin(phi);
+        double cosPhi = trig.cos(phi);
+        double sinPhi = trig.sin(phi);
 
         double radius = cosPhi / (
                 sinPhi + sinPhiCenter);
@@ -103,23 +124,22 @@ public final class StereographicProjection implements Function<HorizontalCoordin
     public CartesianCoordinates apply(HorizontalCoordinates azAlt) {
 
         double phi = azAlt.lat();
-        double cosPhi = Math.cos(phi);
-        double sinPhi = Math.sin(phi);
+        double cosPhi = trig.cos(phi);
+        double sinPhi = trig.sin(phi);
         double lambda = azAlt.lon();
         double lambdaDelta = (lambda - lambdaCenter);
-        double cosLambdaDelta = Math.cos(lambdaDelta);
+        double cosLambdaDelta = trig.cos(lambdaDelta);
         double d = 1.0 / (
                 1 + sinPhi * sinPhiCenter +
-                       cosPhi * cosPhiCenter * Math.cos(lambdaDelta));
+                       cosPhi * cosPhiCenter * trig.cos(lambdaDelta));
 
-        double x = d * cosPhi * Math.sin(lambdaDelta);
+        double x = d * cosPhi * trig.sin(lambdaDelta);
         double y = d * (sinPhi * cosPhiCenter -
                cosPhi * sinPhiCenter * cosLambdaDelta);
 
         return CartesianCoordinates.of(x, y);
     }
 
-
     /**
      * @param xy
      * @return inverse of stereographic projection: from Cartesian Coordinates ( plane, @xy) to
@@ -143,11 +163,11 @@ public final class StereographicProjection implements Function<HorizontalCoordin
             return HorizontalCoordinates.of(0,0);
         }
         else{
-            double lambda = Angle.normalizePositive(Math.atan2(
+            double lambda = Angle.normalizePositive(trig.atan2(
                     atanNum,
                     atanDen) + lambdaCenter);
 
-            double phi = Math.asin(
+            double phi = trig.asin(
                     cosC * sinPhiCenter +
                             (xy.y() * sinC * cosPhiCenter) / rho
                     );
@@ -156,6 +176,20 @@ public final class StereographicProjection implements Function<HorizontalCoordin
     }
 
 
+    // package private accessors used by the batch conversions of this package
+
+    double centerAz() {
+        return lambdaCenter;
+    }
+
+    double cosCenterAlt() {
+        return cosPhiCenter;
+    }
+
+    double sinCenterAlt() {
+        return sinPhiCenter;
+    }
+
     /**
      *
      * @throws UnsupportedOperationException
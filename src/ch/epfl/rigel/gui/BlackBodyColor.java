@@ -1,23 +1,28 @@
 package ch.epfl.rigel.gui;
 
 import ch.epfl.rigel.Preconditions;
+import ch.epfl.rigel.astronomy.Star;
 import ch.epfl.rigel.math.ClosedInterval;
 import javafx.scene.paint.Color;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
- * Reads from bbr_color database to obtain color corresponding to blackbody, access to color provided by colorForTemperature method
+ * Reads from bbr_color database to obtain color corresponding to blackbody, access to color provided by colorForTemperature method.
+ * The database is read once into tables indexed by the bucket of the temperature, see Star.colorTemperatureBucket(),
+ * so that coloring a star is an array read
  * @author Alp Ozen (314542)
  * @author Jacopo Ferro (299301)
  */
 
 public class BlackBodyColor {
 
-    //using a static method to read the txt file, we only read once to improve performance
-    private static Map<Integer,String> BBRVALUES = readFromBbr();
+    private static final ClosedInterval TEMPERATURE_INTERVAL = ClosedInterval.of(1000, 40000);
+    // one entry every 100 K from 1000 K to 40000 K
+    private static final int BUCKET_COUNT = Star.colorTemperatureBucket(40000) + 1;
+    // using a static method to read the txt file, we only read once to improve performance
+    private static final int[] ARGB = new int[BUCKET_COUNT];
+    private static final Color[] COLORS = readFromBbr();
     // non-instaniable
     private BlackBodyColor(){ }
 
@@ -26,33 +31,33 @@ public class BlackBodyColor {
     }
 
 
-    //used to read data from bbr_color.txt and store it in a hashmap for later use
-    private static Map<Integer,String> readFromBbr(){
-
-        Map<Integer,String> BBRVALUES = new HashMap<>();
-
+    //used to read data from bbr_color.txt and store it in the tables for later use
+    private static Color[] readFromBbr(){
 
+        Color[] colors = new Color[BUCKET_COUNT];
 
         try (InputStream hs = resourceStream ( "/bbr_color.txt" );
                 InputStreamReader asciiDecodedStream = new InputStreamReader(hs);
              BufferedReader buffer = new BufferedReader(asciiDecodedStream)) {
 
             String line;
-            int currentInteger;
+            int currentBucket;
             String currentRGB;
             while ((line = buffer.readLine()) != null) {
                 // we ignore the # and 2deg cases
                 if((line.charAt(0)!='#') && (line.charAt(11)!='2')){
-                    // returns integer at [1,6] cutting off space at beginning if there is any
-                     currentInteger = Integer.parseInt(line.substring(1,6).trim());
-                     currentRGB = line.substring(80,87);
-                     BBRVALUES.put(currentInteger,currentRGB);
+                    // integer at [1,6] cutting off space at beginning if there is any
+                    currentBucket = Star.colorTemperatureBucket(Integer.parseInt(line.substring(1,6).trim()));
+                    currentRGB = line.substring(80,87);
+                    colors[currentBucket] = Color.web(currentRGB);
+                    // #rrggbb, fully opaque
+                    ARGB[currentBucket] = 0xFF00_0000 | Integer.parseInt(currentRGB.substring(1), 16);
                 }
             }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
-        return BBRVALUES;
+        return colors;
     }
 
 
@@ -63,13 +68,37 @@ public class BlackBodyColor {
      * @throws  IllegalArgumentException if temp is not in [1000, 40000]
      */
     public static Color colorForTemperature(double Kelvin)  {
+        Preconditions.checkInInterval(TEMPERATURE_INTERVAL,Kelvin);
+        return COLORS[Star.colorTemperatureBucket(Kelvin)];
+    }
+
+    /**
+     * @param Kelvin
+     * @return color of the given temperature as a packed opaque ARGB integer, as used by PixelWriter
+     * @throws  IllegalArgumentException if temp is not in [1000, 40000]
+     */
+    public static int argbForTemperature(double Kelvin)  {
+        Preconditions.checkInInterval(TEMPERATURE_INTERVAL,Kelvin);
+        return ARGB[Star.colorTemperatureBucket(Kelvin)];
+    }
 
-        ClosedInterval tempInterval = ClosedInterval.of(1000,40000);
-        Preconditions.checkInInterval(tempInterval,Kelvin);
-        int filteredKelvin = (int)(Math.round( Kelvin / 100.0) * 100);
-        String colArg = BBRVALUES.get(filteredKelvin);
-        return Color.web(colArg);
+    /**
+     * No check beyond the array bounds, for the stars whose bucket the catalogue already computed
+     * @param bucket bucket of the temperature, see Star.colorTemperatureBucket()
+     * @return same color as colorForTemperature
+     * @throws ArrayIndexOutOfBoundsException if the bucket is not the one of a temperature in [1000, 40000]
+     */
+    public static Color colorForBucket(int bucket) {
+        return COLORS[bucket];
+    }
 
+    /**
+     * @param bucket bucket of the temperature, see Star.colorTemperatureBucket()
+     * @return same color as argbForTemperature
+     * @throws ArrayIndexOutOfBoundsException if the bucket is not the one of a temperature in [1000, 40000]
+     */
+    public static int argbForBucket(int bucket) {
+        return ARGB[bucket];
     }
 
 }
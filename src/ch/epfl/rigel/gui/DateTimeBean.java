@@ -1,28 +1,54 @@
 package ch.epfl.rigel.gui;
 
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleObjectProperty;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.function.Function;
 
 
 /**
  * This class is a JavaFX bean, it represents a mutable version of the ZonedDateTime class
+ * <p>
+ *     The zoned date time is a property of its own, from which the date, time and zone properties are derived:
+ *     setting the zoned date time changes it once, however many of its fields change, and setting one of the
+ *     fields changes it once too. Whoever depends on the instant should observe zonedDateTimeProperty().
+ * </p>
  * @author Alp Ozen (314542)
  * @author Jacopo Ferro (299301)
  */
 public final class DateTimeBean {
 
-    private ObjectProperty<LocalDate> date = new SimpleObjectProperty<>();
-    private ObjectProperty<LocalTime> time = new SimpleObjectProperty<>();
-    private ObjectProperty<ZoneId> zone = new SimpleObjectProperty<>();
+    private ObjectProperty<LocalDate> date = new FieldProperty<>(ZonedDateTime::toLocalDate);
+    private ObjectProperty<LocalTime> time = new FieldProperty<>(ZonedDateTime::toLocalTime);
+    private ObjectProperty<ZoneId> zone = new FieldProperty<>(ZonedDateTime::getZone);
+    // null until date, time and zone are all set
+    private ReadOnlyObjectWrapper<ZonedDateTime> zonedDateTime = new ReadOnlyObjectWrapper<>();
+    // non null while the fields are copied from it by setZonedDateTime, so that they don't write zonedDateTime
+    // back and so that listeners of one field already read the others at their new value
+    private ZonedDateTime updatingFields = null;
 
 
     // no-arg constructor
     public DateTimeBean(){
+        InvalidationListener fieldChanged = (o) -> {
+            // the fields are read in any case, an invalidation listener is only called again once they are valid
+            LocalDate newDate = getDate();
+            LocalTime newTime = getTime();
+            ZoneId newZone = getZone();
+            if (updatingFields == null && newDate != null && newTime != null && newZone != null) {
+                zonedDateTime.set(ZonedDateTime.of(newDate, newTime, newZone));
+            }
+        };
+        date.addListener(fieldChanged);
+        time.addListener(fieldChanged);
+        zone.addListener(fieldChanged);
     }
 
 
@@ -100,19 +126,50 @@ public final class DateTimeBean {
 
     /**
      *
-     * @return zonedatetime instance
+     * @return zonedatetime instance, in a new property
      */
     public SimpleObjectProperty<ZonedDateTime> getZonedDateTime(){
-        return  new SimpleObjectProperty<>(ZonedDateTime.of(this.getDate(),this.getTime(),this.getZone()));
+        return  new SimpleObjectProperty<>(zonedDateTime.get());
     }
 
     /**
-     * sets current instance to have same properties as the setterTime argument
+     *
+     * @return zonedDateTime property, changed exactly once by each setter of this bean
+     */
+    public ReadOnlyObjectProperty<ZonedDateTime> zonedDateTimeProperty(){
+        return zonedDateTime.getReadOnlyProperty();
+    }
+
+    /**
+     * sets current instance to have same properties as the setterTime argument, in one change of zonedDateTimeProperty()
      * @param setterTime
      */
     public void setZonedDateTime(ZonedDateTime setterTime){
-        this.setDate(setterTime.toLocalDate());
-        this.setTime(setterTime.toLocalTime());
-        this.setZone(setterTime.getZone());
+        // the fields first, so that listeners of zonedDateTimeProperty() read them at the new instant
+        updatingFields = setterTime;
+        try {
+            this.setDate(setterTime.toLocalDate());
+            this.setTime(setterTime.toLocalTime());
+            this.setZone(setterTime.getZone());
+        } finally {
+            updatingFields = null;
+        }
+        zonedDateTime.set(setterTime);
+    }
+
+    // a field of the zoned date time, read from the one being set while setZonedDateTime copies the fields
+    private final class FieldProperty<T> extends SimpleObjectProperty<T> {
+        private final Function<ZonedDateTime, T> field;
+
+        FieldProperty(Function<ZonedDateTime, T> field){
+            this.field = field;
+        }
+
+        @Override
+        public T get(){
+            // read in any case, which validates the property
+            T value = super.get();
+            return updatingFields == null ? value : field.apply(updatingFields);
+        }
     }
 }
@@ -1,12 +1,18 @@
 package ch.epfl.rigel.gui;
 
 import ch.epfl.rigel.astronomy.AsterismLoader;
-import ch.epfl.rigel.astronomy.HygDatabaseLoader;
+import ch.epfl.rigel.astronomy.BinaryCatalogueLoader;
+import ch.epfl.rigel.astronomy.ObservedSky;
 import ch.epfl.rigel.astronomy.StarCatalogue;
 import ch.epfl.rigel.coordinates.GeographicCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ObservableObjectValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -24,13 +30,21 @@ import javafx.stage.Stage;
 import javafx.util.converter.LocalTimeStringConverter;
 import javafx.util.converter.NumberStringConverter;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
 import static javafx.beans.binding.Bindings.when;
@@ -42,6 +56,9 @@ import static javafx.beans.binding.Bindings.when;
  */
 public class Main extends Application {
 
+    // system property printing the time to the first frames, e.g. -Drigel.startupTiming=true
+    private static final String STARTUP_TIMING_PROPERTY = "rigel.startupTiming";
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -50,99 +67,169 @@ public class Main extends Application {
         return getClass (). getResourceAsStream (resourceName);
     }
 
+    // opens the resource as a FileInputStream when it is a plain file, so that loaders can memory-map it
+    private InputStream resourceFileStream (String resourceName) throws IOException {
+        URL url = getClass().getResource(resourceName);
+        if (url != null && url.getProtocol().equals("file")) {
+            try {
+                return new FileInputStream(new File(url.toURI()));
+            } catch (URISyntaxException e) {
+                // not a usable path, we read it as any other resource
+            }
+        }
+        return resourceStream(resourceName);
+    }
+
     /**
      * All works from here, start
+     * <p>
+     *     The window is shown with an empty catalogue, so with the Sun, the Moon and the planets only,
+     *     while the stars and asterisms are loaded on a background thread and swapped in once ready.
+     *     With -Drigel.startupTiming=true, the time to the first frame showing a sky and to the first frame
+     *     showing the stars are printed.
+     * </p>
      * @param primaryStage
      * @throws IOException
      */
     @Override
     public void start (Stage primaryStage) throws IOException {
-        try (InputStream hs = resourceStream ( "/hygdata_v3.csv" );
+        long startTime = System.nanoTime();
+        // started first, it runs while the window is built
+        CompletableFuture<StarCatalogue> loadedCatalog = CompletableFuture.supplyAsync(this::loadCatalogue);
+        ObjectProperty<StarCatalogue> catalog = new SimpleObjectProperty<>(
+                new StarCatalogue(List.of(), List.of()));
+
+        primaryStage.setTitle("Rigel");
+        primaryStage.setMinWidth(800);
+        primaryStage.setMinHeight(600);
+
+        //creating neccessary beans
+        DateTimeBean dateTimeBean = new DateTimeBean ();
+        ObserverLocationBean observeLocationBean = new ObserverLocationBean();
+
+        // initializing
+        dateTimeBean.setZonedDateTime(ZonedDateTime.now());
+        dateTimeBean.setDate(LocalDate.now());
+        observeLocationBean.setLonDeg(6.57);
+        observeLocationBean.setLatDeg(46.52);
+        TimeAnimator timeAnimator = new TimeAnimator(dateTimeBean);
+
+
+        ViewingParametersBean viewingParametersBean =
+                new ViewingParametersBean ();
+        viewingParametersBean.setCenter (
+                HorizontalCoordinates.ofDeg ( 180.000000000001 , 15 ));
+        viewingParametersBean.setFieldOfViewDeg ( 100 );
+
+        SkyModeBean skyMode = new SkyModeBean();
+        skyMode.setMode("normal");
+        MagnitudeBean magnitude = new MagnitudeBean();
+        BackgroundRgbBean backgroundRgb = new BackgroundRgbBean();
+
+        SkyComputationWorker worker = SkyComputationWorker.inBackground();
+        SkyCanvasManager canvasManager = new SkyCanvasManager (
+                catalog,
+                dateTimeBean,
+                observeLocationBean,
+                viewingParametersBean,
+                skyMode,
+                magnitude,
+                backgroundRgb,
+                worker);
+
+        Canvas sky = canvasManager.canvas();
+        Pane skyPane = new Pane();
+        BorderPane root = new BorderPane ();
+        sky.widthProperty().bind(root.widthProperty());
+        sky.heightProperty().bind(root.heightProperty());
+
+        skyPane.getChildren().add(canvasManager.view());
+        root.setTop(setController(observeLocationBean, dateTimeBean, timeAnimator, skyMode, canvasManager.starRenderingProperty()));
+        root.setCenter(skyPane);
+        root.setBottom(setInformationPane(viewingParametersBean, canvasManager));
+
+        Scene scene = new Scene(root);
+        reportFirstFrame(scene, worker.latestSkyProperty(), (observedSky) -> true, "first frame", startTime);
+        primaryStage.setScene (scene);
+        primaryStage.show ();
+        sky.requestFocus();
+
+        loadedCatalog.whenComplete((loaded, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                reportFirstFrame(scene, worker.latestSkyProperty(),
+                        (observedSky) -> observedSky.state().catalogue() == loaded, "first frame with stars", startTime);
+                catalog.set(loaded);
+            } else {
+                Alert alert = new Alert(Alert.AlertType.ERROR, "Star catalogue could not be loaded: " + error.getMessage());
+                alert.initOwner(primaryStage);
+                alert.show();
+            }
+        }));
+
+        // shown once the window had its first frame, without blocking start
+        Platform.runLater(() -> showReleaseNotes(primaryStage));
+    }
+
+    // called on a background thread, the window being shown with an empty catalogue meanwhile
+    private StarCatalogue loadCatalogue() {
+        // hygdata_v3.bin is hygdata_v3.csv converted by BinaryCatalogueWriter, it loads without any parsing
+        try (InputStream hs = resourceFileStream ( "/hygdata_v3.bin" );
              InputStream as = resourceStream ( "/asterisms.txt" ) ) {
-            StarCatalogue catalog = new StarCatalogue.Builder ()
-                    .loadFrom (hs, HygDatabaseLoader.INSTANCE).loadFrom(as, AsterismLoader.INSTANCE).build();
-
-            primaryStage.setTitle("Rigel");
-            primaryStage.setMinWidth(800);
-            primaryStage.setMinHeight(600);
-
-            //creating neccessary beans
-            DateTimeBean dateTimeBean = new DateTimeBean ();
-            ObserverLocationBean observeLocationBean = new ObserverLocationBean();
-
-            // initializing
-            dateTimeBean.setZonedDateTime(ZonedDateTime.now());
-            dateTimeBean.setDate(LocalDate.now());
-            observeLocationBean.setLonDeg(6.57);
-            observeLocationBean.setLatDeg(46.52);
-            TimeAnimator timeAnimator = new TimeAnimator(dateTimeBean);
-
-
-            ViewingParametersBean viewingParametersBean =
-                    new ViewingParametersBean ();
-            viewingParametersBean.setCenter (
-                    HorizontalCoordinates.ofDeg ( 180.000000000001 , 15 ));
-            viewingParametersBean.setFieldOfViewDeg ( 100 );
-
-            SkyModeBean skyMode = new SkyModeBean();
-            skyMode.setMode("normal");
-            MagnitudeBean magnitude = new MagnitudeBean();
-            BackgroundRgbBean backgroundRgb = new BackgroundRgbBean();
-
-            SkyCanvasManager canvasManager = new SkyCanvasManager (
-                    catalog,
-                    dateTimeBean,
-                    observeLocationBean,
-                    viewingParametersBean,
-                    skyMode,
-                    magnitude,
-                    backgroundRgb);
-
-            Canvas sky = canvasManager.canvas();
-            Pane skyPane = new Pane();
-            BorderPane root = new BorderPane ();
-            sky.widthProperty().bind(root.widthProperty());
-            sky.heightProperty().bind(root.heightProperty());
-
-            skyPane.getChildren().add(sky);
-            root.setTop(setController(observeLocationBean, dateTimeBean, timeAnimator, skyMode));
-            root.setCenter(skyPane);
-            root.setBottom(setInformationPane(viewingParametersBean, canvasManager));
-
-            primaryStage.setMinWidth ( 800 );
-            primaryStage.setMinHeight ( 600 );
-            primaryStage.setScene (new Scene(root));
-            primaryStage.show ();
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.initOwner(primaryStage);
-            alert.setTitle("Release Beta 0.2");
-            alert.setHeaderText("What's new? ");
-            String newLine = System.getProperty("line.separator");
-            alert.setContentText( new StringBuilder()
-                    .append("--> SKY MODE: choose the elements you want drawn in the sky \n")
-                    .append(newLine)
-                    .append("--> DEPTH EFFECT: dynamic sky color and star magnitude, exactly as if it were a telescope \n")
-                    .append(newLine)
-                    .append("--> NAVIGATE: navigate through the sky using your cursor \n")
-                    .append(newLine)
-                    .toString());
-
-            alert.showAndWait();
-
-
-            sky.requestFocus();
+            return new StarCatalogue.Builder ()
+                    .loadFrom (hs, BinaryCatalogueLoader.INSTANCE).loadFrom(as, AsterismLoader.INSTANCE).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    // prints the time elapsed since startTime at the pulse following the publication of the first sky accepted by
+    // shown, i.e. when the frame painting it is drawn, only when launched with -Drigel.startupTiming=true
+    private static void reportFirstFrame(Scene scene, ReadOnlyObjectProperty<ObservedSky> latestSky,
+                                         Predicate<ObservedSky> shown, String frame, long startTime) {
+        if (!Boolean.getBoolean(STARTUP_TIMING_PROPERTY)) {
+            return;
+        }
+        InvalidationListener[] skyListener = new InvalidationListener[1];
+        skyListener[0] = (o) -> {
+            // read in any case, an invalidation listener is only called again once the property is valid
+            ObservedSky sky = latestSky.get();
+            if (sky != null && shown.test(sky)) {
+                latestSky.removeListener(skyListener[0]);
+                Runnable[] pulseListener = new Runnable[1];
+                pulseListener[0] = () -> {
+                    scene.removePostLayoutPulseListener(pulseListener[0]);
+                    System.out.printf("%s after %d ms%n", frame, (System.nanoTime() - startTime) / 1_000_000);
+                };
+                scene.addPostLayoutPulseListener(pulseListener[0]);
+            }
+        };
+        latestSky.addListener(skyListener[0]);
+    }
 
+    private void showReleaseNotes(Stage primaryStage) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.initOwner(primaryStage);
+        alert.setTitle("Release Beta 0.2");
+        alert.setHeaderText("What's new? ");
+        String newLine = System.getProperty("line.separator");
+        alert.setContentText( new StringBuilder()
+                .append("--> SKY MODE: choose the elements you want drawn in the sky \n")
+                .append(newLine)
+                .append("--> DEPTH EFFECT: dynamic sky color and star magnitude, exactly as if it were a telescope \n")
+                .append(newLine)
+                .append("--> NAVIGATE: navigate through the sky using your cursor \n")
+                .append(newLine)
+                .toString());
+        alert.show();
+    }
 
 
     // root method which constructs upper hboxes
-    private HBox setController(ObserverLocationBean observerBean, DateTimeBean dateTimeBean, TimeAnimator timeAnimator, SkyModeBean skyMode) throws IOException {
+    private HBox setController(ObserverLocationBean observerBean, DateTimeBean dateTimeBean, TimeAnimator timeAnimator, SkyModeBean skyMode, ObjectProperty<StarRendering> starRendering) throws IOException {
         HBox controlBar = new HBox();
         controlBar.setStyle ( "-fx-spacing: 4; -fx-padding: 4;" );
         setLeftBar(controlBar,observerBean);
-        setMiddleBar(controlBar,dateTimeBean,timeAnimator, skyMode);
+        setMiddleBar(controlBar,dateTimeBean,timeAnimator, skyMode, starRendering);
         setRightBar(controlBar,timeAnimator,dateTimeBean);
         return controlBar;
     }
@@ -211,7 +298,7 @@ public class Main extends Application {
         return filter;
     }
 
-    private void setMiddleBar(HBox observationControl, DateTimeBean dateTime, TimeAnimator timeAnimator, SkyModeBean skyMode){
+    private void setMiddleBar(HBox observationControl, DateTimeBean dateTime, TimeAnimator timeAnimator, SkyModeBean skyMode, ObjectProperty<StarRendering> starRendering){
         HBox controlBar = new HBox();
         controlBar.setStyle("-fx-spacing: inherit; -fx-alignment: baseline-left;");
 
@@ -231,13 +318,19 @@ public class Main extends Application {
         hourEntry.setTextFormatter(timeFormatter);
         timeFormatter.valueProperty().bindBidirectional(dateTime.timeProperty());
 
-        //timeZone panel
-        ObservableList<ZoneId> zoneIDSorted = FXCollections.observableArrayList();
-        for(String zoneIdName : ZoneId.getAvailableZoneIds())
-            zoneIDSorted.add(ZoneId.of(zoneIdName));
-        ComboBox<ZoneId> timeZone = new ComboBox<>(zoneIDSorted.sorted());
+        //timeZone panel, holding only the current zone until the list is first opened
+        ObservableList<ZoneId> zoneIDSorted = FXCollections.observableArrayList(dateTime.getZone());
+        ComboBox<ZoneId> timeZone = new ComboBox<>(zoneIDSorted);
         timeZone.setStyle("-fx-pref-width: 180;");
         timeZone.valueProperty().bindBidirectional(dateTime.zoneProperty());
+        timeZone.setOnShowing(e -> {
+            if (zoneIDSorted.size() == 1) {
+                ObservableList<ZoneId> zones = FXCollections.observableArrayList();
+                for(String zoneIdName : ZoneId.getAvailableZoneIds())
+                    zones.add(ZoneId.of(zoneIdName));
+                zoneIDSorted.setAll(zones.sorted());
+            }
+        });
 
         // choosing the sky mode aka. whether to exclude asterisms, planets or the horizon from drawing
         ObservableList<String> skyDrawingOptions = FXCollections.observableArrayList("asterism-excluded", "horizon-excluded", "planet-excluded", "normal");
@@ -245,7 +338,11 @@ public class Main extends Application {
         skyStructure.setValue("normal");
         skyStructure.valueProperty().bindBidirectional(skyMode.modeProperty());
 
-        controlBar.getChildren().addAll(dateLabel,datePick,hourLabel,hourEntry,timeZone,skyStructure);
+        // choosing how the stars are drawn, as one image being faster when many of them are visible
+        ChoiceBox<StarRendering> starRenderingChoice = new ChoiceBox<>(FXCollections.observableArrayList(StarRendering.values()));
+        starRenderingChoice.valueProperty().bindBidirectional(starRendering);
+
+        controlBar.getChildren().addAll(dateLabel,datePick,hourLabel,hourEntry,timeZone,skyStructure,starRenderingChoice);
         controlBar.disableProperty().bind(timeAnimator.isRunning());
         Separator separator = new Separator(Orientation.VERTICAL);
         observationControl.getChildren().addAll(controlBar,separator);
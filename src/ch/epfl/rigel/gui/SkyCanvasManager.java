@@ -7,19 +7,28 @@ import ch.epfl.rigel.coordinates.CartesianCoordinates;
 import ch.epfl.rigel.coordinates.HorizontalCoordinates;
 import ch.epfl.rigel.coordinates.StereographicProjection;
 import ch.epfl.rigel.math.*;
+import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
+import javafx.beans.binding.BooleanBinding;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ObservableDoubleValue;
 import javafx.beans.value.ObservableObjectValue;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.transform.Transform;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 /**
  * @author Alp Ozen (314542)
  * @author Jacopo Ferro (299301)
@@ -31,14 +40,26 @@ public class SkyCanvasManager {
     private static final double MAX_OBJECT_CLOSEST_DISTANCE = 10;
     private static final RightOpenInterval AZ_INTERVAL = RightOpenInterval.of(0,360);
     private static final ClosedInterval ALT_INTERVAL = ClosedInterval.of(5,90);
+    // canvas of the top layer, the others follow its size
     private final Canvas canvas = new Canvas ( 800, 600 );
+    private final StackPane view = new StackPane();
 
     private static final Polynomial MAGNITUDE_CURVE = Polynomial.of(0.000005707,-0.00125, -0.02349, 16);
     private static final Polynomial RGBBLUE_CURVE = Polynomial.of(-0.00023,0.0647, -3.06,40 );
     private static final Polynomial RGBGREEN_CURVE = Polynomial.of(-0.000008384,0.00227894, -0.09159, 4.438179);
     private static final ClosedInterval RGBRANGE = ClosedInterval.of(0,255);
+    // radii, in degrees, of the caps of stars projected, a larger one being only taken when the canvas needs it
+    // so that zooming and resizing only recompute the sky when crossing one of them
+    private static final double[] CULL_RADII_DEG = {22.5, 45, 90};
+    // room for the discs of the stars just outside the canvas
+    private static final double CULL_MARGIN_DEG = 1;
 
     // all properties defined here --> these are values that do not need to be observable
+    // number of repaints of each layer, to check what each change costs, the worker counts the computations
+    private final Map<SkyLayer, ReadOnlyIntegerWrapper> repaintCounts = new EnumMap<>(SkyLayer.class);
+
+    private final ObjectProperty<StarRendering> starRendering = new SimpleObjectProperty<>(StarRendering.OVALS);
+
     private ObjectProperty<Point2D> mousePosition = new SimpleObjectProperty<>(new Point2D(100,120));
     private ViewingParametersBean viewParam;
 
@@ -46,9 +67,12 @@ public class SkyCanvasManager {
     private ClosedInterval fieldOfViewRange = ClosedInterval.of(30,150);
 
     private ObservableObjectValue<Transform> planeToCanvas;
-    private ObservableObjectValue<SkyCanvasPainter> painter;
+    private final Map<SkyLayer, SkyCanvasPainter> painters = new EnumMap<>(SkyLayer.class);
+    private final SkyComputationWorker worker;
     private ObservableObjectValue<ObservedSky> sky;
     private ObservableObjectValue<StereographicProjection> projection;
+    private ObservableDoubleValue cullRadius;
+    private ObservableDoubleValue magnitudeLimit;
     private ObservableObjectValue<HorizontalCoordinates> mouseHorizontalCoordinates;
     private ObservableObjectValue<CelestialObject> objectUnderMouse;
     private ObservableDoubleValue mouseAltDeg;
@@ -57,7 +81,30 @@ public class SkyCanvasManager {
 
     //constructor defines bindings and adds listener to draw sky
     public SkyCanvasManager(StarCatalogue catalogue, DateTimeBean when, ObserverLocationBean observerLocation, ViewingParametersBean viewingParameters, SkyModeBean skyMode, MagnitudeBean magnitude, BackgroundRgbBean backgroundRgb){
+        this(new SimpleObjectProperty<>(catalogue), when, observerLocation, viewingParameters, skyMode, magnitude, backgroundRgb, SkyComputationWorker.onCallingThread());
+    }
+
+    /**
+     * Same as above, with a catalogue that can change, e.g. an empty one replaced once the real one is loaded:
+     * the sky is recomputed and repainted whenever it does.
+     * Skies are computed by the given worker, the canvas always shows the latest one it published
+     */
+    public SkyCanvasManager(ObservableObjectValue<StarCatalogue> catalogue, DateTimeBean when, ObserverLocationBean observerLocation, ViewingParametersBean viewingParameters, SkyModeBean skyMode, MagnitudeBean magnitude, BackgroundRgbBean backgroundRgb, SkyComputationWorker worker){
         this.viewParam = viewingParameters;
+        this.worker = worker;
+        // one canvas per layer, stacked, the lower ones letting the events through to the top one
+        for(SkyLayer layer : SkyLayer.values()){
+            Canvas layerCanvas = layer == SkyLayer.HORIZON ? canvas : new Canvas();
+            if(layerCanvas != canvas){
+                layerCanvas.widthProperty().bind(canvas.widthProperty());
+                layerCanvas.heightProperty().bind(canvas.heightProperty());
+                layerCanvas.setMouseTransparent(true);
+            }
+            view.getChildren().add(layerCanvas);
+            painters.put(layer, new SkyCanvasPainter(layerCanvas));
+            repaintCounts.put(layer, new ReadOnlyIntegerWrapper(0));
+        }
+        view.setAlignment(Pos.TOP_LEFT);
         canvas.requestFocus();
         magnitude.setMagnitude(MAGNITUDE_CURVE.at(viewingParameters.getFieldOfView()));
         backgroundRgb.setBackgroundColor(Color.rgb(0,(int)Math.floor(RGBRANGE.clip(RGBGREEN_CURVE.at(viewParam.getFieldOfView()))),(int)Math.floor(RGBRANGE.clip(RGBBLUE_CURVE.at(viewParam.getFieldOfView()/1.5)))));
@@ -65,18 +112,44 @@ public class SkyCanvasManager {
 
         // we define all of our bindings here
         this.projection = Bindings.createObjectBinding(
-                ()-> new StereographicProjection(viewingParameters.getProjectionCenter()),
+                ()-> new StereographicProjection(viewingParameters.getProjectionCenter(), Trigonometry.DISPLAY),
                 viewingParameters.projectionCenterProperty());
 
         this.planeToCanvas = Bindings.createObjectBinding(() -> {
                     double dilation = (canvas.getWidth())/(this.projection.get().applyToAngle(Angle.ofDeg(this.viewParam.getFieldOfView())));
                     return Transform.affine(dilation,0,0,-1*dilation,canvas.getWidth()/2.0,canvas.getHeight()/2);
                 },
-                canvas.getProperties(),viewParam.fieldOfViewProperty()
+                canvas.widthProperty(),canvas.heightProperty(),viewParam.fieldOfViewProperty()
         );
 
-        this.sky = Bindings.createObjectBinding(()-> new ObservedSky(when.getZonedDateTime().get(),observerLocation.getCoordinates().get(), this.projection.get(), catalogue),
-                when.dateProperty(),when.zoneProperty(),when.timeProperty(),observerLocation.lonDegProperty(),observerLocation.latDegProperty(),this.projection,this.canvas.heightProperty(),this.canvas.widthProperty(),this.planeToCanvas, skyMode.modeProperty(), backgroundRgb.backgroundColorProperty(), magnitude.magnitudeProperty());
+        // stars farther than this from the center of the projection can't be on the canvas
+        this.cullRadius = Bindings.createDoubleBinding(() -> {
+                    double canvasRadius = Math.hypot(canvas.getWidth(), canvas.getHeight()) / 2;
+                    double planeRadius = canvasRadius * this.projection.get().applyToAngle(Angle.ofDeg(this.viewParam.getFieldOfView())) / canvas.getWidth();
+                    return cullRadiusFor(2 * Math.atan(planeRadius) + Angle.ofDeg(CULL_MARGIN_DEG));
+                },
+                canvas.widthProperty(),canvas.heightProperty(),viewParam.fieldOfViewProperty()
+        );
+
+        // stars fainter than this are not drawn, rounded up to a whole magnitude so that most changes only repaint
+        this.magnitudeLimit = Bindings.createDoubleBinding(() -> Math.ceil(magnitude.getMagnitude()),
+                magnitude.magnitudeProperty());
+
+        // every input of the sky asks the worker for a new one, which reads them all again for the next change
+        // zoom, resize and style only change how the sky is painted, not the sky itself, see the repaint listener
+        // below, unless they change the cull radius or the magnitude limit
+        InvalidationListener requestSky = (observable) -> worker.request(when.zonedDateTimeProperty().get(),
+                observerLocation.getCoordinates().get(), catalogue.get(), this.projection.get(),
+                this.cullRadius.get(), this.magnitudeLimit.get());
+        catalogue.addListener(requestSky);
+        when.zonedDateTimeProperty().addListener(requestSky);
+        observerLocation.lonDegProperty().addListener(requestSky);
+        observerLocation.latDegProperty().addListener(requestSky);
+        this.projection.addListener(requestSky);
+        // only when its value changes, the binding being invalidated on every zoom
+        this.cullRadius.addListener((observable, oldRadius, newRadius) -> requestSky.invalidated(observable));
+        this.magnitudeLimit.addListener((observable, oldLimit, newLimit) -> requestSky.invalidated(observable));
+        this.sky = worker.latestSkyProperty();
 
 
         // transforming the arg to be passed to objectclosesto
@@ -86,17 +159,15 @@ public class SkyCanvasManager {
                 }
                 , planeToCanvas);
 
-        this.objectUnderMouse = Bindings.createObjectBinding(()->
-                this.sky.get().objectClosestTo(CartesianCoordinates.of(planeToCanvas.get().inverseTransform(this.getMouseX(),this.getMouseY()).getX(), planeToCanvas.get().inverseTransform(this.getMouseX(),this.getMouseY()).getY()),this.transformedMaxObjectClosestDistance.get()),mousePosition,planeToCanvas,transformedMaxObjectClosestDistance);
+        // nothing is under the mouse until the first sky is published
+        this.objectUnderMouse = Bindings.createObjectBinding(()-> this.sky.get() == null ? null :
+                this.sky.get().objectClosestTo(CartesianCoordinates.of(planeToCanvas.get().inverseTransform(this.getMouseX(),this.getMouseY()).getX(), planeToCanvas.get().inverseTransform(this.getMouseX(),this.getMouseY()).getY()),this.transformedMaxObjectClosestDistance.get()),sky,mousePosition,planeToCanvas,transformedMaxObjectClosestDistance);
 
         this.mouseHorizontalCoordinates = Bindings.createObjectBinding(()->{
             CartesianCoordinates inverseTransform = CartesianCoordinates.of(this.planeToCanvas.get().inverseTransform(getMouseX(),getMouseY()).getX(),this.planeToCanvas.get().inverseTransform(getMouseX(),getMouseY()).getY());
             return this.projection.get().inverseApply(inverseTransform);
         },planeToCanvas,projection,mousePosition);
 
-        this.painter =  Bindings.createObjectBinding(()-> new SkyCanvasPainter(this.canvas),
-                this.canvas.heightProperty(),this.canvas.widthProperty(),this.sky,this.planeToCanvas,this.projection);
-
         this.mouseAltDeg = Bindings.createDoubleBinding(()->(mouseHorizontalCoordinates.get().altDeg()),mouseHorizontalCoordinates);
         this.mouseAzDeg = Bindings.createDoubleBinding(()->(mouseHorizontalCoordinates.get().azDeg()),mouseHorizontalCoordinates);
 
@@ -116,8 +187,37 @@ public class SkyCanvasManager {
         canvas.setOnMousePressed(e -> this.setFocus(e,canvas)); // ENSURES THAT ONLY RIGHT CLICK GRANTS FOCUS
         canvas.setOnKeyPressed(e -> this.setProjectionCenter(e));
 
-        //main listener here
-        sky.addListener((observable) -> this.paintSky(skyMode, magnitude, backgroundRgb));
+        //main listeners here, each layer is repainted only when one of its inputs changes, which its paint method
+        //revalidates, and when the sky mode shows or hides what it draws
+        BooleanBinding asterisms = Bindings.createBooleanBinding(() -> !skyMode.isIsNonAsterism(), skyMode.modeProperty());
+        BooleanBinding planets = Bindings.createBooleanBinding(() -> !skyMode.isIsNonPlanet(), skyMode.modeProperty());
+        BooleanBinding horizon = Bindings.createBooleanBinding(() -> !skyMode.isIsNonHorizon(), skyMode.modeProperty());
+
+        InvalidationListener repaintBackground = (observable) -> this.paintBackground(backgroundRgb);
+        canvas.widthProperty().addListener(repaintBackground);
+        canvas.heightProperty().addListener(repaintBackground);
+        backgroundRgb.backgroundColorProperty().addListener(repaintBackground);
+
+        InvalidationListener repaintStars = (observable) -> this.paintStars(asterisms.get(), magnitude);
+        sky.addListener(repaintStars);
+        planeToCanvas.addListener(repaintStars);
+        magnitude.magnitudeProperty().addListener(repaintStars);
+        starRendering.addListener(repaintStars);
+        asterisms.addListener((observable, oldValue, newValue) -> repaintStars.invalidated(observable));
+
+        InvalidationListener repaintBodies = (observable) -> this.paintBodies(planets.get());
+        sky.addListener(repaintBodies);
+        planeToCanvas.addListener(repaintBodies);
+        planets.addListener((observable, oldValue, newValue) -> repaintBodies.invalidated(observable));
+
+        InvalidationListener repaintHorizon = (observable) -> this.paintHorizon(horizon.get());
+        sky.addListener(repaintHorizon);
+        planeToCanvas.addListener(repaintHorizon);
+        horizon.addListener((observable, oldValue, newValue) -> repaintHorizon.invalidated(observable));
+
+        repaintBackground.invalidated(null);
+
+        requestSky.invalidated(null);
     };
 
     private void setFocus(MouseEvent e, Canvas canvas){
@@ -188,24 +288,74 @@ public class SkyCanvasManager {
     }
 
 
-    private void paintSky(SkyModeBean skyMode, MagnitudeBean magnitude, BackgroundRgbBean color){
-
-        painter.get().clear(color);
-        if(!skyMode.isIsNonAsterism()){
-            painter.get().drawAsterisms(sky.get(), projection.get(), planeToCanvas.get());
+    // smallest of CULL_RADII_DEG that is at least the given radius, PI, i.e. no culling, if there is none
+    private static double cullRadiusFor(double visibleRadius){
+        for(double radiusDeg : CULL_RADII_DEG){
+            if(visibleRadius <= Angle.ofDeg(radiusDeg)){
+                return Angle.ofDeg(radiusDeg);
+            }
         }
-        painter.get().drawStars(sky.get(), projection.get(), planeToCanvas.get(), magnitude.getMagnitude());
-        if(!skyMode.isIsNonPlanet()){
-            painter.get().drawPlanets(sky.get(), projection.get(), planeToCanvas.get());
+        return Math.PI;
+    }
+
+    // counts a repaint of the layer and returns its painter
+    private SkyCanvasPainter repaint(SkyLayer layer){
+        ReadOnlyIntegerWrapper count = repaintCounts.get(layer);
+        count.set(count.get() + 1);
+        return painters.get(layer);
+    }
+
+    private void paintBackground(BackgroundRgbBean color){
+        repaint(SkyLayer.BACKGROUND).clear(color);
+    }
+
+    // the layers above the background paint the latest sky with the projection it was computed with, which may
+    // lag behind the current one, and stay transparent until the first sky is published
+    private void paintStars(boolean asterisms, MagnitudeBean magnitude){
+        SkyCanvasPainter painter = repaint(SkyLayer.STARS);
+        painter.clear();
+        ObservedSky sky = this.sky.get();
+        if(sky == null){
+            return;
         }
-        painter.get().drawSun(sky.get(), projection.get(), planeToCanvas.get());
-        painter.get().drawMoon(sky.get(), projection.get(), planeToCanvas.get());
-        if(!skyMode.isIsNonHorizon()){
-            painter.get().drawHorizon(sky.get(),projection.get(), planeToCanvas.get());
+        StereographicProjection projection = sky.projection();
+        if(starRendering.get() == StarRendering.RASTER){
+            painter.drawImage(sky, projection, planeToCanvas.get(), magnitude.getMagnitude(), asterisms);
+        } else {
+            if(asterisms){
+                painter.drawAsterisms(sky, projection, planeToCanvas.get());
+            }
+            if(starRendering.get() == StarRendering.SPRITES){
+                painter.drawSprites(sky, projection, planeToCanvas.get(), magnitude.getMagnitude());
+            } else {
+                painter.drawStars(sky, projection, planeToCanvas.get(), magnitude.getMagnitude());
+            }
         }
+    }
 
+    private void paintBodies(boolean planets){
+        SkyCanvasPainter painter = repaint(SkyLayer.BODIES);
+        painter.clear();
+        ObservedSky sky = this.sky.get();
+        if(sky == null){
+            return;
+        }
+        StereographicProjection projection = sky.projection();
+        if(planets){
+            painter.drawPlanets(sky, projection, planeToCanvas.get());
+        }
+        painter.drawSun(sky, projection, planeToCanvas.get());
+        painter.drawMoon(sky, projection, planeToCanvas.get());
+    }
 
-
+    private void paintHorizon(boolean horizon){
+        SkyCanvasPainter painter = repaint(SkyLayer.HORIZON);
+        painter.clear();
+        ObservedSky sky = this.sky.get();
+        if(sky == null || !horizon){
+            return;
+        }
+        painter.drawHorizon(sky, sky.projection(), planeToCanvas.get());
     }
 
 
@@ -224,12 +374,28 @@ public class SkyCanvasManager {
 
     /**
      *
-     * @return content of Canvas property
+     * @return canvas of the top layer, which receives the mouse and keyboard events and whose size all layers follow
      */
     public Canvas canvas(){
         return this.canvas;
     }
 
+    /**
+     *
+     * @return canvases of all layers, stacked from the background up
+     */
+    public StackPane view(){
+        return this.view;
+    }
+
+
+    /**
+     *
+     * @return how the stars are drawn, one oval at a time by default
+     */
+    public ObjectProperty<StarRendering> starRenderingProperty() {
+        return starRendering;
+    }
 
     /**
      *
@@ -248,6 +414,31 @@ public class SkyCanvasManager {
         return mouseAltDeg;
     }
 
+    /**
+     *
+     * @return number of sky states computed so far, i.e. of changes of time, place or catalogue
+     */
+    public ReadOnlyIntegerProperty skyStateComputationCountProperty() {
+        return worker.skyStateComputationCountProperty();
+    }
+
+    /**
+     *
+     * @return number of observed skies computed so far, i.e. of sky states or projections
+     */
+    public ReadOnlyIntegerProperty skyComputationCountProperty() {
+        return worker.skyComputationCountProperty();
+    }
+
+    /**
+     *
+     * @param layer
+     * @return number of times the layer was painted so far
+     */
+    public ReadOnlyIntegerProperty repaintCountProperty(SkyLayer layer) {
+        return repaintCounts.get(layer).getReadOnlyProperty();
+    }
+
 
 
 }
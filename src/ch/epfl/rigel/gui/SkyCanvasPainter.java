@@ -11,11 +11,17 @@ import ch.epfl.rigel.math.EuclidianDistance;
 import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.geometry.VPos;
+import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.transform.Transform;
+import javafx.stage.Window;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleSupplier;
 
 /**
  * Paints onto a given canvas
@@ -24,20 +30,49 @@ import javafx.scene.transform.Transform;
  */
 public class SkyCanvasPainter {
 
+    private static final ClosedInterval MAGNITUDE_INTERVAL = ClosedInterval.of(-2, 5);
+
+    // Color.BLUE of drawAsterisms, packed
+    private static final int ASTERISM_ARGB = 0xFF0000FF;
+
     private Canvas canvas;
     private GraphicsContext ctx;
+    // created by the first drawSprites or drawImage, the other layers never drawing stars
+    private SkyRasterizer rasterizer;
+    private StarSpriteAtlas sprites;
+    private final ForkJoinPool pool;
+    private final DoubleSupplier outputScale;
 
 
     /**
-     *
+     * images are rendered in parallel on the common fork join pool, at the output scale of the window of the canvas
      * @param canvas
      */
     public SkyCanvasPainter(Canvas canvas){
+        this(canvas, ForkJoinPool.commonPool(), () -> windowOutputScale(canvas));
+    }
+
+    /**
+     * Package private so that benchmarks can choose the number of cores and the output scale
+     * @param canvas
+     * @param pool pool images are rendered on, null to render them serially
+     * @param outputScale pixels of the images per unit of the canvas
+     */
+    SkyCanvasPainter(Canvas canvas, ForkJoinPool pool, DoubleSupplier outputScale){
         this.canvas = canvas;
         this.ctx = canvas.getGraphicsContext2D();
+        this.pool = pool;
+        this.outputScale = outputScale;
         //setting black background
     }
 
+    // screen pixels per unit of the canvas, e.g. 2 on most Hi-DPI screens, 1 before the canvas is shown
+    private static double windowOutputScale(Canvas canvas){
+        Scene scene = canvas.getScene();
+        Window window = scene == null ? null : scene.getWindow();
+        return window == null ? 1 : Math.max(window.getOutputScaleX(), window.getOutputScaleY());
+    }
+
 
     // returns transformed diameter of celestial objects (ignores traslation and treats diameter as vector)
     private double transformedDiscDiameter(CelestialObject object, StereographicProjection projection, Transform planeToCanvas){
@@ -48,21 +83,37 @@ public class SkyCanvasPainter {
             return EuclidianDistance.norm(transformedDiameterVector.getX(),transformedDiameterVector.getY());
         }
         else {
-            ClosedInterval interval = ClosedInterval.of(-2, 5);
-            double mP = interval.clip(object.magnitude());
-            double f = (99 - (17 * mP)) / 140.0;
-            double discDiameter = f*halfDegreeDiameter;
-            Point2D transformedDiameterVector = planeToCanvas.deltaTransform(new Point2D(discDiameter,0));
-            return EuclidianDistance.norm(transformedDiameterVector.getX(),transformedDiameterVector.getY());
+            return transformedDiscDiameter(object.magnitude(), projection, planeToCanvas);
         }
     }
 
+    // returns transformed diameter of an object of given magnitude, used for stars which are not instantiated
+    private double transformedDiscDiameter(double magnitude, StereographicProjection projection, Transform planeToCanvas){
+        double halfDegreeDiameter = projection.applyToAngle(Angle.ofDeg(0.5));
+        double discDiameter = magnitudeFactor(magnitude)*halfDegreeDiameter;
+        Point2D transformedDiameterVector = planeToCanvas.deltaTransform(new Point2D(discDiameter,0));
+        return EuclidianDistance.norm(transformedDiameterVector.getX(),transformedDiameterVector.getY());
+    }
+
+    // ratio of the diameter of a star of given magnitude to half a degree
+    private static double magnitudeFactor(double magnitude){
+        double mP = MAGNITUDE_INTERVAL.clip(magnitude);
+        return (99 - (17 * mP)) / 140.0;
+    }
+
     //returns transformed coordinates ( ignores dilatation being just a point )
     private Point2D transformCoordinates(double x, double y, Transform planeToCanvas){
         Point2D pointToTransform = new Point2D(x,y);
         return planeToCanvas.transform(pointToTransform);
     }
 
+    /**
+     * clears canvas, leaving it transparent
+     */
+    public void clear(){
+        ctx.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
     /**
      * clears canvas and set black background
      * @return void
@@ -74,7 +125,7 @@ public class SkyCanvasPainter {
     }
 
     /**
-     * draws stars and asterisms
+     * draws stars, one oval at a time
      * @param sky
      * @param projection
      * @param planeToAffine
@@ -82,22 +133,116 @@ public class SkyCanvasPainter {
      */
     public void drawStars(ObservedSky sky,StereographicProjection projection, Transform planeToAffine, Double magnitude){
 
-        //draw stars
-        int i=0;
-        for(Star s:sky.stars()){
-            double discDiameter = transformedDiscDiameter(s,projection,planeToAffine);
-            Point2D transformedCoordinates = transformCoordinates(sky.starPositions()[i],
-                    sky.starPositions()[i+1],planeToAffine);
+        // the transform is the same for every star, its coefficients are read once instead of allocating points
+        double mxx = planeToAffine.getMxx(), mxy = planeToAffine.getMxy(), tx = planeToAffine.getTx();
+        double myx = planeToAffine.getMyx(), myy = planeToAffine.getMyy(), ty = planeToAffine.getTy();
+        double halfDegreeDiameter = projection.applyToAngle(Angle.ofDeg(0.5)) * EuclidianDistance.norm(mxx, myx);
+        //draw stars, indexed accessors avoid copying the position arrays and instantiating stars
+        //only the projected ones, the others being too far from the center to be on the canvas
+        for(int k = 0; k < sky.projectedStarCount(); ++k){
+            int i = sky.projectedStar(k);
+            double starMagnitude = sky.starMagnitude(i);
             // stars are drawn only if their magnitude is less than the current magnitude
-            if(s.magnitude() <= magnitude){
-                ctx.setFill(BlackBodyColor.colorForTemperature(s.colorTemperature()));
-                ctx.fillOval(transformedCoordinates.getX() - (discDiameter/2),
-                        transformedCoordinates.getY() - (discDiameter/2), discDiameter, discDiameter);
+            if(starMagnitude <= magnitude){
+                double x = sky.starX(i), y = sky.starY(i);
+                double discDiameter = magnitudeFactor(starMagnitude) * halfDegreeDiameter;
+                // colors are looked up in a table by the bucket the catalogue computed for each star
+                ctx.setFill(BlackBodyColor.colorForBucket(sky.starColorBucket(i)));
+                ctx.fillOval(mxx * x + mxy * y + tx - (discDiameter/2),
+                        myx * x + myy * y + ty - (discDiameter/2), discDiameter, discDiameter);
             }
-            i += 2;
         }
     }
 
+    /**
+     * draws stars as drawStars above, but as one image of a sprite atlas per star
+     * @param sky
+     * @param projection
+     * @param planeToAffine
+     * @param magnitude
+     */
+    public void drawSprites(ObservedSky sky,StereographicProjection projection, Transform planeToAffine, Double magnitude){
+
+        double mxx = planeToAffine.getMxx(), mxy = planeToAffine.getMxy(), tx = planeToAffine.getTx();
+        double myx = planeToAffine.getMyx(), myy = planeToAffine.getMyy(), ty = planeToAffine.getTy();
+        double halfDegreeDiameter = projection.applyToAngle(Angle.ofDeg(0.5)) * EuclidianDistance.norm(mxx, myx);
+        if(sprites == null){
+            sprites = new StarSpriteAtlas();
+        }
+        for(int k = 0; k < sky.projectedStarCount(); ++k){
+            int i = sky.projectedStar(k);
+            double starMagnitude = sky.starMagnitude(i);
+            if(starMagnitude <= magnitude){
+                double x = sky.starX(i), y = sky.starY(i);
+                // an image of the atlas rather than an oval, the sprite of each diameter and color being drawn once
+                sprites.draw(ctx, mxx * x + mxy * y + tx, myx * x + myy * y + ty,
+                        magnitudeFactor(starMagnitude) * halfDegreeDiameter, sky.starColorBucket(i));
+            }
+        }
+    }
+
+
+    /**
+     * draws the asterisms if asked and the stars, as drawAsterisms and drawStars do but as one image, rendered in
+     * parallel bands at the output scale of the screen. The horizon is left to drawHorizon
+     * @param sky
+     * @param projection
+     * @param planeToAffine
+     * @param magnitude
+     * @param asterisms
+     */
+    public void drawImage(ObservedSky sky, StereographicProjection projection, Transform planeToAffine, Double magnitude, boolean asterisms){
+        double scale = outputScale.getAsDouble();
+        int width = (int) Math.ceil(canvas.getWidth() * scale);
+        int height = (int) Math.ceil(canvas.getHeight() * scale);
+        if(width == 0 || height == 0){
+            return;
+        }
+        if(rasterizer == null){
+            rasterizer = new SkyRasterizer(pool);
+        }
+        rasterizer.begin(width, height);
+        // the transform is the same for every shape, its coefficients are read once instead of allocating points
+        Transform planeToPixels = Transform.scale(scale, scale).createConcatenation(planeToAffine);
+        double mxx = planeToPixels.getMxx(), mxy = planeToPixels.getMxy(), tx = planeToPixels.getTx();
+        double myx = planeToPixels.getMyx(), myy = planeToPixels.getMyy(), ty = planeToPixels.getTy();
+
+        if(asterisms){
+            for(Asterism a: sky.asterisms()){
+                List<Integer> indices = sky.starIndices(a);
+                for(int j = 1; j < indices.size(); ++j){
+                    double x0 = sky.starX(indices.get(j - 1)), y0 = sky.starY(indices.get(j - 1));
+                    double x1 = sky.starX(indices.get(j)), y1 = sky.starY(indices.get(j));
+                    double px0 = mxx * x0 + mxy * y0 + tx, py0 = myx * x0 + myy * y0 + ty;
+                    double px1 = mxx * x1 + mxy * y1 + tx, py1 = myx * x1 + myy * y1 + ty;
+                    // as drawAsterisms, only if at least one of the stars is inside the canvas
+                    if(isInside(px0, py0, width, height) || isInside(px1, py1, width, height)){
+                        rasterizer.line(px0, py0, px1, py1, scale, ASTERISM_ARGB);
+                    }
+                }
+            }
+        }
+
+        double halfDegreeDiameter = projection.applyToAngle(Angle.ofDeg(0.5)) * EuclidianDistance.norm(mxx, myx);
+        for(int k = 0; k < sky.projectedStarCount(); ++k){
+            int i = sky.projectedStar(k);
+            double starMagnitude = sky.starMagnitude(i);
+            if(starMagnitude <= magnitude){
+                double x = sky.starX(i), y = sky.starY(i);
+                rasterizer.disc(mxx * x + mxy * y + tx, myx * x + myy * y + ty,
+                        magnitudeFactor(starMagnitude) * halfDegreeDiameter,
+                        BlackBodyColor.argbForBucket(sky.starColorBucket(i)));
+            }
+        }
+
+        rasterizer.render();
+        ctx.drawImage(rasterizer.image(), 0, 0, width / scale, height / scale);
+    }
+
+    private static boolean isInside(double x, double y, int width, int height){
+        return 0 <= x && x <= width && 0 <= y && y <= height;
+    }
+
 
     public void drawAsterisms(ObservedSky sky,StereographicProjection projection, Transform planeToAffine){
         //draw Asterisms
@@ -106,15 +251,17 @@ public class SkyCanvasPainter {
         for(Asterism a: sky.asterisms()){
             ctx.beginPath();
             ctx.setLineWidth(1);
+            // fetched once per asterism, starIndices() returns a copy
+            List<Integer> indices = sky.starIndices(a);
             int i = 0;
             int j = 1;
-            while(j < sky.starIndices(a).size()){
+            while(j < indices.size()){
                 //current and previous index
-                int currentIndex = sky.starIndices(a).get(i);
-                int nextIndex = sky.starIndices(a).get(j);
+                int currentIndex = indices.get(i);
+                int nextIndex = indices.get(j);
                 //transformed coordinates of the current and previous star
-                Point2D currentPos = transformCoordinates(sky.starPositions()[2*currentIndex], sky.starPositions()[2*currentIndex+1], planeToAffine);
-                Point2D nextPos = transformCoordinates(sky.starPositions()[2*nextIndex], sky.starPositions()[2*nextIndex+1], planeToAffine);
+                Point2D currentPos = transformCoordinates(sky.starX(currentIndex), sky.starY(currentIndex), planeToAffine);
+                Point2D nextPos = transformCoordinates(sky.starX(nextIndex), sky.starY(nextIndex), planeToAffine);
                 //move head
                 ctx.moveTo(currentPos.getX(),currentPos.getY());
                 //draw line if at least one between the current and the previous star is inside the canvas bounds
@@ -140,15 +287,13 @@ public class SkyCanvasPainter {
      */
     public void drawPlanets(ObservedSky sky,StereographicProjection projection, Transform planeToAffine){
 
-        int i = 0;
-        for(Planet planet:sky.planets()){
+        for(int i = 0; i < sky.planetCount(); ++i){
+            Planet planet = sky.planet(i);
             double discDiameter = this.transformedDiscDiameter(planet,projection,planeToAffine);
-            Point2D transformedCoordinates = this.transformCoordinates(sky.planetPositions()[i],
-                    sky.planetPositions()[i+1],planeToAffine);
+            Point2D transformedCoordinates = this.transformCoordinates(sky.planetX(i), sky.planetY(i), planeToAffine);
             ctx.setFill(Color.LIGHTGRAY);
             ctx.fillOval(transformedCoordinates.getX() - (discDiameter/2),
                     transformedCoordinates.getY() - (discDiameter/2), discDiameter,discDiameter);
-            i+=2;
         }
     }
 
@@ -209,6 +354,11 @@ public class SkyCanvasPainter {
         ctx.setLineWidth(2);
         ctx.strokeOval(horizonX,horizonY, transformedRadius*2, transformedRadius*2);
 
+        drawHorizonNames(projection, planeToAffine);
+    }
+
+    // draws the names of the cardinal points, below the horizon
+    private void drawHorizonNames(StereographicProjection projection, Transform planeToAffine){
         //adding horizon annotations
         ctx.setFill(Color.RED);
         ctx.setTextAlign(TextAlignment.CENTER);
@@ -0,0 +1,193 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.SkyState;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Computes observed skies on a computation executor and publishes them on a publication executor.
+ * <p>
+ *     Requests and results are handed over through atomic references holding only the latest of each:
+ *     a request made while another is computed replaces any request still waiting, which is dropped, and a sky
+ *     published while the previous one has not been taken yet replaces it. At most one computation is queued
+ *     at any time. The sky state of the previous computation is reused when only the projection changed.
+ * </p><p>
+ *     Skies are immutable, so the sky of latestSkyProperty() can be painted while the next one is computed.
+ *     The properties of this class are only changed by the publication executor, i.e. on the JavaFX thread.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public final class SkyComputationWorker {
+
+    private final Executor computationExecutor;
+    private final Executor publicationExecutor;
+    private final boolean parallel;
+
+    private final AtomicReference<Request> pendingRequest = new AtomicReference<>();
+    private final AtomicReference<ObservedSky> computedSky = new AtomicReference<>();
+    private final AtomicBoolean publicationScheduled = new AtomicBoolean(false);
+    private final AtomicInteger skyStateComputations = new AtomicInteger(0);
+    private final AtomicInteger skyComputations = new AtomicInteger(0);
+    // only accessed by the computation executor, which runs one computation at a time
+    private SkyState lastState;
+
+    private final ReadOnlyObjectWrapper<ObservedSky> latestSky = new ReadOnlyObjectWrapper<>();
+    private final ReadOnlyIntegerWrapper skyStateComputationCount = new ReadOnlyIntegerWrapper(0);
+    private final ReadOnlyIntegerWrapper skyComputationCount = new ReadOnlyIntegerWrapper(0);
+
+    /**
+     * Package private, see the factories
+     * @param computationExecutor executes computations one at a time
+     * @param publicationExecutor executes publications on the JavaFX thread
+     * @param parallel whether the stars of each sky are handled in parallel, see SkyState
+     */
+    SkyComputationWorker(Executor computationExecutor, Executor publicationExecutor, boolean parallel) {
+        this.computationExecutor = computationExecutor;
+        this.publicationExecutor = publicationExecutor;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return worker computing on a thread of its own, helped by the common fork join pool for large
+     * catalogues, and publishing on the JavaFX thread
+     */
+    public static SkyComputationWorker inBackground() {
+        Executor computationThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sky-computation");
+            // must not keep the application alive once the window is closed
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new SkyComputationWorker(computationThread, Platform::runLater, true);
+    }
+
+    /**
+     * @return worker computing and publishing on the thread making the request, so before request() returns
+     */
+    public static SkyComputationWorker onCallingThread() {
+        return new SkyComputationWorker(Runnable::run, Runnable::run, false);
+    }
+
+    /**
+     * Asks for the sky at the given time and place, projected with the given projection. Never blocks.
+     * @param when
+     * @param where
+     * @param catalogue
+     * @param projection
+     */
+    public void request(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue,
+                        StereographicProjection projection) {
+        request(when, where, catalogue, projection, Math.PI, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Same as above, only projecting the stars that may be within cullRadius of the center of the projection
+     * and whose magnitude is at most magnitudeLimit, see ObservedSky
+     * @param when
+     * @param where
+     * @param catalogue
+     * @param projection
+     * @param cullRadius in radians
+     * @param magnitudeLimit
+     */
+    public void request(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue,
+                        StereographicProjection projection, double cullRadius, double magnitudeLimit) {
+        Request request = new Request(when, where, catalogue, projection, cullRadius, magnitudeLimit);
+        if (pendingRequest.getAndSet(request) == null) {
+            // no computation was queued for a request yet
+            computationExecutor.execute(this::computeLatestRequest);
+        }
+    }
+
+    /**
+     * @return latest sky published, null until the first one is
+     */
+    public ReadOnlyObjectProperty<ObservedSky> latestSkyProperty() {
+        return latestSky.getReadOnlyProperty();
+    }
+
+    /**
+     * @return number of sky states computed up to the latest sky published
+     */
+    public ReadOnlyIntegerProperty skyStateComputationCountProperty() {
+        return skyStateComputationCount.getReadOnlyProperty();
+    }
+
+    /**
+     * @return number of skies computed up to the latest sky published, including dropped ones
+     */
+    public ReadOnlyIntegerProperty skyComputationCountProperty() {
+        return skyComputationCount.getReadOnlyProperty();
+    }
+
+    // on the computation executor
+    private void computeLatestRequest() {
+        Request request = pendingRequest.getAndSet(null);
+        if (request == null) {
+            return;
+        }
+        SkyState state = lastState;
+        if (state == null || !request.hasSameStateAs(state)) {
+            state = new SkyState(request.when, request.where, request.catalogue, parallel);
+            lastState = state;
+            skyStateComputations.incrementAndGet();
+        }
+        computedSky.set(new ObservedSky(state, request.projection, request.cullRadius, request.magnitudeLimit));
+        skyComputations.incrementAndGet();
+
+        if (publicationScheduled.compareAndSet(false, true)) {
+            publicationExecutor.execute(this::publishComputedSky);
+        }
+    }
+
+    // on the publication executor
+    private void publishComputedSky() {
+        publicationScheduled.set(false);
+        // counts first, so that they are up to date for the listeners of the sky
+        skyStateComputationCount.set(skyStateComputations.get());
+        skyComputationCount.set(skyComputations.get());
+        latestSky.set(computedSky.get());
+    }
+
+    // inputs of one computation
+    private static final class Request {
+        private final ZonedDateTime when;
+        private final GeographicCoordinates where;
+        private final StarCatalogue catalogue;
+        private final StereographicProjection projection;
+        private final double cullRadius, magnitudeLimit;
+
+        private Request(ZonedDateTime when, GeographicCoordinates where, StarCatalogue catalogue,
+                        StereographicProjection projection, double cullRadius, double magnitudeLimit) {
+            this.when = when;
+            this.where = where;
+            this.catalogue = catalogue;
+            this.projection = projection;
+            this.cullRadius = cullRadius;
+            this.magnitudeLimit = magnitudeLimit;
+        }
+
+        // coordinates have no equals, they are compared by value here
+        private boolean hasSameStateAs(SkyState state) {
+            return state.catalogue() == catalogue
+                    && state.when().equals(when)
+                    && state.where().lon() == where.lon()
+                    && state.where().lat() == where.lat();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ch.epfl.rigel.gui;
+
+/**
+ * Layers of the view of the sky, from bottom to top, each on its own canvas and repainted only when what it
+ * shows changes
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public enum SkyLayer {
+    /**
+     * color of the sky, depends on the field of view
+     */
+    BACKGROUND,
+    /**
+     * asterisms and stars, by far the costliest
+     */
+    STARS,
+    /**
+     * planets, Sun and Moon
+     */
+    BODIES,
+    /**
+     * horizon and names of the cardinal points, its canvas receives the mouse and keyboard events
+     */
+    HORIZON
+}
@@ -0,0 +1,453 @@
+package ch.epfl.rigel.gui;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Draws lines and discs into an array of premultiplied ARGB pixels, shown on the canvas as one image.
+ * <p>
+ *     The shapes are first recorded, then rendered: the lines first, then the discs, each in the order they
+ *     were recorded, as the painter layers the asterisms and the stars. Rendering cuts the pixels in horizontal
+ *     bands, each drawing the part of the shapes crossing it, run in parallel on a fork join pool. A band only
+ *     writes its own rows, so the pixels are the same as when rendered serially.
+ * </p><p>
+ *     Each disc is a stamp of the coverage of its pixels, in [0, 255], computed once per diameter, rounded to a
+ *     quarter of pixel, and per position of its center inside a pixel, rounded to a quarter of pixel on each
+ *     axis. The coverage is the fraction of 8x8 samples of the pixel inside the disc, so that the discs
+ *     smaller than a pixel are dimmed rather than lost. Lines are stroked, the coverage of a pixel being the
+ *     distance from its center to the edge of the stroke, clamped to [0, 1].
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class SkyRasterizer {
+
+    private static final int SUB_PIXELS = 4;
+    private static final int DIAMETER_STEPS_PER_PIXEL = 4;
+    private static final int SAMPLES = 8;
+    // below this many rows a band costs more than it saves, a few bands per worker so that a slow one doesn't
+    // hold the others
+    private static final int MIN_BAND_HEIGHT = 32;
+    private static final int BANDS_PER_WORKER = 4;
+
+    // pool the bands are rendered on, null when they are in the calling thread
+    private final ForkJoinPool pool;
+    private int width;
+    private int height;
+    private int[] pixels = new int[0];
+    private WritableImage image;
+    // stamps[diameter step][SUB_PIXELS * subY + subX], computed when first needed, while recording
+    private Stamp[][] stamps = new Stamp[0][];
+
+    // recorded discs, top left pixel of their stamp
+    private int discCount;
+    private int[] discLeft = new int[0], discTop = new int[0], discColor = new int[0];
+    private Stamp[] discStamp = new Stamp[0];
+    // recorded lines, x0, y0, x1, y1 and half width of each
+    private int lineCount;
+    private double[] lines = new double[0];
+    private int[] lineColor = new int[0];
+    // discs crossing each band, those of band b being at [bandStart[b], bandStart[b + 1][ of bandDiscs
+    private int[] bandStart = new int[0];
+    private int[] bandDiscs = new int[0];
+
+    /**
+     * @param pool pool the bands are rendered on, null to render them serially
+     */
+    SkyRasterizer(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Forgets the recorded shapes and resizes the pixels if needed, which are only cleared by render
+     * @param width in pixels
+     * @param height in pixels
+     */
+    void begin(int width, int height){
+        if(width * height != pixels.length){
+            pixels = new int[width * height];
+        }
+        this.width = width;
+        this.height = height;
+        discCount = 0;
+        lineCount = 0;
+    }
+
+    /**
+     * Records a disc, ignored if it is outside of the pixels
+     * @param centerX in pixels
+     * @param centerY in pixels
+     * @param diameter in pixels
+     * @param argb opaque color
+     */
+    void disc(double centerX, double centerY, double diameter, int argb){
+        // also false for NaN, i.e. stars projected to infinity
+        if(!(centerX > -diameter && centerX < width + diameter && centerY > -diameter && centerY < height + diameter)){
+            return;
+        }
+        int step = (int) Math.round(diameter * DIAMETER_STEPS_PER_PIXEL);
+        if(step <= 0){
+            return;
+        }
+        double left = Math.floor(centerX), top = Math.floor(centerY);
+        int subX = Math.min((int) ((centerX - left) * SUB_PIXELS), SUB_PIXELS - 1);
+        int subY = Math.min((int) ((centerY - top) * SUB_PIXELS), SUB_PIXELS - 1);
+        Stamp stamp = stamp(step, subX, subY);
+        if(stamp.width == 0){
+            return;
+        }
+        if(discCount == discStamp.length){
+            int capacity = Math.max(16, 2 * discCount);
+            discLeft = Arrays.copyOf(discLeft, capacity);
+            discTop = Arrays.copyOf(discTop, capacity);
+            discColor = Arrays.copyOf(discColor, capacity);
+            discStamp = Arrays.copyOf(discStamp, capacity);
+        }
+        int base = base(step);
+        discLeft[discCount] = (int) left - base + stamp.left;
+        discTop[discCount] = (int) top - base + stamp.top;
+        discColor[discCount] = argb;
+        discStamp[discCount] = stamp;
+        ++discCount;
+    }
+
+    /**
+     * Records a line, ignored if one of its ends is not finite
+     * @param x0 first end, in pixels
+     * @param y0
+     * @param x1 second end, in pixels
+     * @param y1
+     * @param lineWidth in pixels
+     * @param argb opaque color
+     */
+    void line(double x0, double y0, double x1, double y1, double lineWidth, int argb){
+        if(!(Double.isFinite(x0) && Double.isFinite(y0) && Double.isFinite(x1) && Double.isFinite(y1))){
+            return;
+        }
+        if(lineCount == lineColor.length){
+            int capacity = Math.max(16, 2 * lineCount);
+            lines = Arrays.copyOf(lines, 5 * capacity);
+            lineColor = Arrays.copyOf(lineColor, capacity);
+        }
+        int i = 5 * lineCount;
+        lines[i] = x0;
+        lines[i + 1] = y0;
+        lines[i + 2] = x1;
+        lines[i + 3] = y1;
+        lines[i + 4] = lineWidth / 2;
+        lineColor[lineCount] = argb;
+        ++lineCount;
+    }
+
+    /**
+     * Clears the pixels and draws the recorded shapes, in parallel if the rasterizer was built with a pool
+     */
+    void render(){
+        if(height == 0 || width == 0){
+            return;
+        }
+        int workers = pool == null ? 1 : pool.getParallelism();
+        int bandHeight = Math.max(MIN_BAND_HEIGHT, ceilDiv(height, BANDS_PER_WORKER * workers));
+        int bandCount = ceilDiv(height, bandHeight);
+        binDiscs(bandHeight, bandCount);
+
+        BandAction action = (from, to) -> {
+            for(int b = from; b < to; ++b){
+                renderBand(b * bandHeight, Math.min(height, (b + 1) * bandHeight), bandStart[b], bandStart[b + 1]);
+            }
+        };
+        // stays serial on one worker or with a single band
+        if(workers <= 1 || bandCount == 1){
+            action.run(0, bandCount);
+        } else {
+            pool.invoke(new BandTask(0, bandCount, action));
+        }
+    }
+
+    /**
+     * @return the pixels as an image, premultiplied, which is only valid until the next call to render
+     */
+    Image image(){
+        if(image == null || image.getWidth() != width || image.getHeight() != height){
+            image = new WritableImage(width, height);
+        }
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * package private, for the tests, the array is shared and must not be modified
+     * @return the pixels, row after row, premultiplied ARGB
+     */
+    int[] pixels(){
+        return pixels;
+    }
+
+    // sorts the discs by band, in recorded order, a disc crossing several bands being in each of them
+    private void binDiscs(int bandHeight, int bandCount){
+        if(bandStart.length < bandCount + 1){
+            bandStart = new int[bandCount + 1];
+        } else {
+            Arrays.fill(bandStart, 0);
+        }
+        for(int d = 0; d < discCount; ++d){
+            int first = firstBand(d, bandHeight), last = lastBand(d, bandHeight, bandCount);
+            for(int b = first; b <= last; ++b){
+                ++bandStart[b + 1];
+            }
+        }
+        for(int b = 0; b < bandCount; ++b){
+            bandStart[b + 1] += bandStart[b];
+        }
+        if(bandDiscs.length < bandStart[bandCount]){
+            bandDiscs = new int[bandStart[bandCount]];
+        }
+        // bandStart[b] is used as the next free slot of band b, then shifted back once every disc is placed
+        for(int d = 0; d < discCount; ++d){
+            int first = firstBand(d, bandHeight), last = lastBand(d, bandHeight, bandCount);
+            for(int b = first; b <= last; ++b){
+                bandDiscs[bandStart[b]++] = d;
+            }
+        }
+        for(int b = bandCount; b > 0; --b){
+            bandStart[b] = bandStart[b - 1];
+        }
+        bandStart[0] = 0;
+    }
+
+    private int firstBand(int disc, int bandHeight){
+        return Math.max(0, discTop[disc]) / bandHeight;
+    }
+
+    private int lastBand(int disc, int bandHeight, int bandCount){
+        return Math.min(bandCount - 1, Math.max(0, discTop[disc] + discStamp[disc].height - 1) / bandHeight);
+    }
+
+    // clears the rows in [top, bottom[ and draws the part of the shapes crossing them
+    private void renderBand(int top, int bottom, int fromDisc, int toDisc){
+        Arrays.fill(pixels, top * width, bottom * width, 0);
+        for(int i = 0; i < lineCount; ++i){
+            drawLine(i, top, bottom);
+        }
+        for(int k = fromDisc; k < toDisc; ++k){
+            drawDisc(bandDiscs[k], top, bottom);
+        }
+    }
+
+    private void drawDisc(int d, int top, int bottom){
+        Stamp stamp = discStamp[d];
+        int x0 = discLeft[d], y0 = discTop[d], argb = discColor[d];
+        byte[] coverage = stamp.coverage;
+        int fromX = Math.max(0, -x0), toX = Math.min(stamp.width, width - x0);
+        int fromY = Math.max(0, top - y0), toY = Math.min(stamp.height, bottom - y0);
+        for(int sy = fromY; sy < toY; ++sy){
+            int row = (y0 + sy) * width + x0;
+            int stampRow = sy * stamp.width;
+            for(int sx = fromX; sx < toX; ++sx){
+                int alpha = coverage[stampRow + sx] & 0xFF;
+                if(alpha != 0){
+                    blend(row + sx, argb, alpha);
+                }
+            }
+        }
+    }
+
+    private void drawLine(int i, int top, int bottom){
+        double x0 = lines[5 * i], y0 = lines[5 * i + 1], x1 = lines[5 * i + 2], y1 = lines[5 * i + 3];
+        double halfWidth = lines[5 * i + 4];
+        int argb = lineColor[i];
+        // pixels whose center is farther than this from the segment are not covered
+        double reach = halfWidth + 0.5;
+        double dx = x1 - x0, dy = y1 - y0, lengthSquared = dx * dx + dy * dy;
+        int fromY = (int) Math.max(top, Math.floor(Math.min(y0, y1) - reach));
+        int toY = (int) Math.min(bottom, Math.floor(Math.max(y0, y1) + reach) + 1);
+        for(int y = fromY; y < toY; ++y){
+            double centerY = y + 0.5;
+            // the part of the segment within reach of the row, the only one that can cover its pixels
+            double tA = 0, tB = 1;
+            if(dy != 0){
+                tA = clip01((centerY - reach - y0) / dy);
+                tB = clip01((centerY + reach - y0) / dy);
+            }
+            double xA = x0 + tA * dx, xB = x0 + tB * dx;
+            int fromX = (int) Math.max(0, Math.floor(Math.min(xA, xB) - reach));
+            int toX = (int) Math.min(width, Math.floor(Math.max(xA, xB) + reach) + 1);
+            for(int x = fromX; x < toX; ++x){
+                double centerX = x + 0.5;
+                double t = lengthSquared == 0 ? 0 : clip01(((centerX - x0) * dx + (centerY - y0) * dy) / lengthSquared);
+                double px = x0 + t * dx - centerX, py = y0 + t * dy - centerY;
+                double covered = reach - Math.sqrt(px * px + py * py);
+                if(covered > 0){
+                    blend(y * width + x, argb, alpha(covered));
+                }
+            }
+        }
+    }
+
+    // source over the pixel at index, both premultiplied, the color being opaque its alpha times the coverage
+    // is the coverage
+    private void blend(int index, int argb, int alpha){
+        int source = premultiplied(argb, alpha);
+        int destination = pixels[index];
+        if(destination != 0 && alpha != 255){
+            int remaining = 255 - alpha;
+            source += scale(destination, remaining) | (scale(destination >>> 8, remaining) << 8);
+        }
+        pixels[index] = source;
+    }
+
+    // coverage in [0, 255] of a pixel whose center is covered by this many pixels
+    private static int alpha(double covered){
+        return covered >= 1 ? 255 : (int) (covered * 255 + 0.5);
+    }
+
+    private static double clip01(double value){
+        return Math.max(0, Math.min(1, value));
+    }
+
+    private static int ceilDiv(int value, int divisor){
+        return (value + divisor - 1) / divisor;
+    }
+
+    // coverage of the pixels of a disc, computed when first needed
+    private Stamp stamp(int step, int subX, int subY){
+        if(step >= stamps.length){
+            stamps = Arrays.copyOf(stamps, Math.max(step + 1, 2 * stamps.length));
+        }
+        if(stamps[step] == null){
+            stamps[step] = new Stamp[SUB_PIXELS * SUB_PIXELS];
+        }
+        int position = SUB_PIXELS * subY + subX;
+        if(stamps[step][position] == null){
+            stamps[step][position] = coverage(step, subX, subY);
+        }
+        return stamps[step][position];
+    }
+
+    // the stamp is 2 * base + 2 pixels wide, its center being in the pixel at (base, base), base >= radius
+    private static int base(int step){
+        return (step + 2 * DIAMETER_STEPS_PER_PIXEL - 1) / (2 * DIAMETER_STEPS_PER_PIXEL);
+    }
+
+    private static Stamp coverage(int step, int subX, int subY){
+        int base = base(step), size = 2 * base + 2;
+        byte[] coverage = discCoverage(step / (double) DIAMETER_STEPS_PER_PIXEL,
+                base + (subX + 0.5) / SUB_PIXELS, base + (subY + 0.5) / SUB_PIXELS, size);
+        return Stamp.trimmed(coverage, size);
+    }
+
+    /**
+     * package private, also used by StarSpriteAtlas
+     * @param diameter in pixels
+     * @param centerX center of the disc in the square, in pixels
+     * @param centerY
+     * @param size side of the square, in pixels
+     * @return coverage in [0, 255] of each pixel of the square by the disc, row after row, from 8x8 samples
+     */
+    static byte[] discCoverage(double diameter, double centerX, double centerY, int size){
+        double radius = diameter / 2;
+        byte[] coverage = new byte[size * size];
+        for(int y = 0; y < size; ++y){
+            for(int x = 0; x < size; ++x){
+                int inside = 0;
+                for(int i = 0; i < SAMPLES; ++i){
+                    double dy = y + (i + 0.5) / SAMPLES - centerY;
+                    for(int j = 0; j < SAMPLES; ++j){
+                        double dx = x + (j + 0.5) / SAMPLES - centerX;
+                        if(dx * dx + dy * dy <= radius * radius){
+                            ++inside;
+                        }
+                    }
+                }
+                coverage[y * size + x] = (byte) ((inside * 255 + SAMPLES * SAMPLES / 2) / (SAMPLES * SAMPLES));
+            }
+        }
+        return coverage;
+    }
+
+    /**
+     * package private, also used by StarSpriteAtlas
+     * @param argb opaque color
+     * @param alpha coverage in [0, 255]
+     * @return the color with the given alpha, premultiplied
+     */
+    static int premultiplied(int argb, int alpha){
+        return scale(argb, alpha) | (scale(argb >>> 8, alpha) << 8);
+    }
+
+    // bytes 0 and 2 of the given channels times factor / 255, rounded, both at once, the others being 0
+    private static int scale(int channels, int factor){
+        int product = (channels & 0xFF00FF) * factor + 0x800080;
+        return ((product + ((product >> 8) & 0xFF00FF)) >> 8) & 0xFF00FF;
+    }
+
+    // coverage of the smallest rectangle of a square stamp holding all of its covered pixels
+    private static final class Stamp {
+        final int left, top, width, height;
+        final byte[] coverage;
+
+        private Stamp(int left, int top, int width, int height, byte[] coverage){
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.coverage = coverage;
+        }
+
+        static Stamp trimmed(byte[] coverage, int size){
+            int left = size, top = size, right = 0, bottom = 0;
+            for(int y = 0; y < size; ++y){
+                for(int x = 0; x < size; ++x){
+                    if(coverage[y * size + x] != 0){
+                        left = Math.min(left, x);
+                        top = Math.min(top, y);
+                        right = Math.max(right, x + 1);
+                        bottom = Math.max(bottom, y + 1);
+                    }
+                }
+            }
+            if(right <= left){
+                return new Stamp(0, 0, 0, 0, new byte[0]);
+            }
+            byte[] trimmed = new byte[(right - left) * (bottom - top)];
+            for(int y = top; y < bottom; ++y){
+                System.arraycopy(coverage, y * size + left, trimmed, (y - top) * (right - left), right - left);
+            }
+            return new Stamp(left, top, right - left, bottom - top, trimmed);
+        }
+    }
+
+    // action on the bands of index in [from, to[
+    @FunctionalInterface
+    private interface BandAction {
+        void run(int from, int to);
+    }
+
+    // halves its bands until there is only one
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from, to;
+        private final BandAction action;
+
+        private BandTask(int from, int to, BandAction action){
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= 1){
+                action.run(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BandTask(from, middle, action), new BandTask(middle, to, action));
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ch.epfl.rigel.gui;
+
+/**
+ * How the painter draws the stars, all give discs of the same sizes and colors
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public enum StarRendering {
+    /**
+     * one oval per star on the graphics context of the canvas, which queues a command per star
+     */
+    OVALS("vectoriel"),
+    /**
+     * one image per star on the graphics context of the canvas, copied from a sprite atlas, which queues a
+     * command per star
+     */
+    SPRITES("sprites"),
+    /**
+     * discs stamped into an array of pixels, with the asterisms, rendered in parallel bands at the resolution of
+     * the screen and drawn onto the canvas as one image, the horizon staying on its own layer
+     */
+    RASTER("matriciel");
+
+    private final String name;
+
+    StarRendering(String name){
+        this.name = name;
+    }
+
+    @Override
+    public String toString(){
+        return name;
+    }
+}
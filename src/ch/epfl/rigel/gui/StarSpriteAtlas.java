@@ -0,0 +1,129 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.Star;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Images of the stars drawn once into the pages of an atlas, so that drawing a star is a copy of part of a page
+ * instead of an oval the canvas has to fill.
+ * <p>
+ *     There is one sprite per diameter, rounded to a quarter of pixel, and per bucket of color temperature, see
+ *     Star.colorTemperatureBucket(), rendered when first needed with the anti-aliasing of SkyRasterizer. A sprite
+ *     only depends on the diameter of the star on the canvas, not on the zoom, so they are kept from one zoom
+ *     level to the next, the atlas only starting over when its pages are full. Sprites are placed on the pages
+ *     in shelves, left to right, each shelf being as high as the first sprite placed on it. The pages are never
+ *     modified where a sprite was drawn, so the images the canvas queued stay valid.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class StarSpriteAtlas {
+
+    private static final int DIAMETER_STEPS_PER_PIXEL = 4;
+    private static final int PAGE_SIZE = 1024;
+    // 4 MB per page
+    private static final int MAX_PAGES = 8;
+    private static final int BUCKET_COUNT = Star.colorTemperatureBucket(40000) + 1;
+
+    private final List<WritableImage> pages = new ArrayList<>();
+    // sprite of diameter step s and bucket b at index s * BUCKET_COUNT + b, 0 if not rendered yet, its page, y and x
+    // packed as in location otherwise
+    private int[] locations = new int[0];
+    private int spriteCount;
+    // free part of the last page: the shelf starting at shelfY, filled up to shelfX
+    private int shelfX, shelfY, shelfHeight;
+
+    /**
+     * Draws a star, as an oval if it is too large for a page
+     * @param ctx
+     * @param centerX in pixels of the canvas
+     * @param centerY in pixels of the canvas
+     * @param diameter in pixels of the canvas
+     * @param bucket bucket of the color temperature of the star
+     */
+    void draw(GraphicsContext ctx, double centerX, double centerY, double diameter, int bucket){
+        int step = (int) Math.round(diameter * DIAMETER_STEPS_PER_PIXEL);
+        if(step <= 0){
+            return;
+        }
+        int size = size(step);
+        if(size > PAGE_SIZE){
+            ctx.setFill(BlackBodyColor.colorForBucket(bucket));
+            ctx.fillOval(centerX - diameter / 2, centerY - diameter / 2, diameter, diameter);
+            return;
+        }
+        int key = step * BUCKET_COUNT + bucket;
+        if(key >= locations.length){
+            locations = Arrays.copyOf(locations, Math.max(key + 1, 2 * locations.length));
+        }
+        if(locations[key] == 0){
+            locations[key] = render(step, bucket, size);
+        }
+        int packed = locations[key] - 1;
+        int page = packed >>> 22, y = (packed >>> 11) & 0x7FF, x = packed & 0x7FF;
+        ctx.drawImage(pages.get(page), x, y, size, size, centerX - size / 2.0, centerY - size / 2.0, size, size);
+    }
+
+    /**
+     * package private, for the tests
+     * @return number of sprites rendered since the atlas last started over
+     */
+    int spriteCount(){
+        return spriteCount;
+    }
+
+    /**
+     * package private, for the tests
+     * @return the pages, the first sprite being at the top left corner of the first one
+     */
+    List<Image> pages(){
+        return List.copyOf(pages);
+    }
+
+    // side of the square holding the disc of a diameter step, with a transparent border of at least one pixel
+    private static int size(int step){
+        return 2 * ((step + 2 * DIAMETER_STEPS_PER_PIXEL - 1) / (2 * DIAMETER_STEPS_PER_PIXEL)) + 2;
+    }
+
+    // draws a sprite on the free part of the pages, returns its location
+    private int render(int step, int bucket, int size){
+        if(shelfX + size > PAGE_SIZE || size > shelfHeight){
+            shelfY += shelfHeight;
+            shelfX = 0;
+            shelfHeight = size;
+        }
+        if(pages.isEmpty() || shelfY + size > PAGE_SIZE){
+            if(pages.size() == MAX_PAGES){
+                // the queued images keep the pages they use
+                pages.clear();
+                Arrays.fill(locations, 0);
+                spriteCount = 0;
+            }
+            pages.add(new WritableImage(PAGE_SIZE, PAGE_SIZE));
+            shelfX = 0;
+            shelfY = 0;
+            shelfHeight = size;
+        }
+
+        byte[] coverage = SkyRasterizer.discCoverage(step / (double) DIAMETER_STEPS_PER_PIXEL, size / 2.0, size / 2.0, size);
+        int argb = BlackBodyColor.argbForBucket(bucket);
+        int[] sprite = new int[size * size];
+        for(int i = 0; i < sprite.length; ++i){
+            sprite[i] = SkyRasterizer.premultiplied(argb, coverage[i] & 0xFF);
+        }
+        pages.get(pages.size() - 1).getPixelWriter()
+                .setPixels(shelfX, shelfY, size, size, PixelFormat.getIntArgbPreInstance(), sprite, 0, size);
+
+        int location = ((pages.size() - 1) << 22 | shelfY << 11 | shelfX) + 1;
+        shelfX += size;
+        ++spriteCount;
+        return location;
+    }
+}
@@ -44,7 +44,7 @@ public final class TimeAnimator extends AnimationTimer {
             }
         }
         else {
-            currentTime = dateTimeBean.getZonedDateTime().get();
+            currentTime = dateTimeBean.zonedDateTimeProperty().get();
             initialTime = now;
         }
     }
@@ -0,0 +1,167 @@
+package ch.epfl.rigel.math;
+
+/**
+ * Trigonometric functions, either as precise as java.lang.Math or just precise enough to draw on a screen.
+ * <p>
+ *     DISPLAY starts from the nearest entry of a table and corrects it with the first terms of a series:
+ *     sine and cosine from a table of one turn, the arc tangent from a table of [0, 1] the other octants are
+ *     brought back to. Its absolute error is at most maxError(), 1e-14, for angles of absolute value at most
+ *     16π, larger ones adding about |angle| * 2e-16 when brought back to one turn. A linear interpolation
+ *     would not do: the altitude being an arc sine, an error e of its sine moves the stars close to the
+ *     zenith by up to sqrt(2e), several pixels for e = 1e-7. Non finite arguments and atan2(0, 0) give the
+ *     same results as java.lang.Math.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+public enum Trigonometry {
+
+    /**
+     * java.lang.Math, within an ulp or two of the exact results
+     */
+    PRECISE {
+        @Override
+        public double sin(double angle) {
+            return Math.sin(angle);
+        }
+
+        @Override
+        public double cos(double angle) {
+            return Math.cos(angle);
+        }
+
+        @Override
+        public double asin(double value) {
+            return Math.asin(value);
+        }
+
+        @Override
+        public double atan2(double y, double x) {
+            return Math.atan2(y, x);
+        }
+
+        @Override
+        public double maxError() {
+            return 1e-15;
+        }
+    },
+
+    /**
+     * Tables corrected by a few terms of series, within 1e-14 of the exact results. Several times faster
+     * than java.lang.Math for the arc sine and arc tangent, about as fast for the sine and cosine, which
+     * most JVMs compile to dedicated code
+     */
+    DISPLAY {
+        @Override
+        public double sin(double angle) {
+            return sinSteps(angle * SIN_STEPS_PER_RAD);
+        }
+
+        @Override
+        public double cos(double angle) {
+            return sinSteps(angle * SIN_STEPS_PER_RAD + SIN_STEPS / 4);
+        }
+
+        @Override
+        public double asin(double value) {
+            // (1 - v)(1 + v) instead of 1 - v², which loses most of its digits when |v| is close to 1
+            return atan2(value, Math.sqrt((1 - value) * (1 + value)));
+        }
+
+        @Override
+        public double atan2(double y, double x) {
+            double absY = Math.abs(y), absX = Math.abs(x);
+            if ((absX == 0 && absY == 0) || !Double.isFinite(absX) || !Double.isFinite(absY)) {
+                return Math.atan2(y, x);
+            }
+            // arc tangent of the ratio in [0, 1], then brought back to the octant of (x, y)
+            double angle = atanUnit(Math.min(absX, absY) / Math.max(absX, absY));
+            if (absY > absX) {
+                angle = Math.PI / 2 - angle;
+            }
+            if (x < 0) {
+                angle = Math.PI - angle;
+            }
+            return Math.copySign(angle, y);
+        }
+
+        @Override
+        public double maxError() {
+            return 1e-14;
+        }
+    };
+
+    // 2π/1024 between the entries of the sine table, at most half of it between an angle and its nearest entry
+    private static final int SIN_STEPS = 1024;
+    private static final double SIN_STEPS_PER_RAD = SIN_STEPS / Angle.TAU;
+    private static final double RAD_PER_SIN_STEP = Angle.TAU / SIN_STEPS;
+    private static final double[] SIN = new double[SIN_STEPS];
+    // 1/512 between the entries of the arc tangent table
+    private static final int ATAN_STEPS = 512;
+    private static final double[] ATAN = new double[ATAN_STEPS + 1];
+
+    static {
+        for (int i = 0; i < SIN_STEPS; ++i) {
+            SIN[i] = Math.sin(i * RAD_PER_SIN_STEP);
+        }
+        for (int i = 0; i <= ATAN_STEPS; ++i) {
+            ATAN[i] = Math.atan((double) i / ATAN_STEPS);
+        }
+    }
+
+    // sine of an angle given in table steps, NaN for non finite angles
+    private static double sinSteps(double steps) {
+        double nearest = Math.rint(steps);
+        // the table size being a power of two, the mask is the index modulo the table size, also when negative
+        int i = (int) ((long) nearest & (SIN_STEPS - 1));
+        double sinNearest = SIN[i], cosNearest = SIN[(i + SIN_STEPS / 4) & (SIN_STEPS - 1)];
+        // sin(a + d) = sin(a)cos(d) + cos(a)sin(d), |d| <= π/1024 so that the terms dropped from the series of
+        // sin(d) and cos(d) are below 1e-17
+        double d = (steps - nearest) * RAD_PER_SIN_STEP;
+        double d2 = d * d;
+        double sinD = d * (1 - d2 / 6 * (1 - d2 / 20));
+        double cosD = 1 - d2 / 2 * (1 - d2 / 12 * (1 - d2 / 30));
+        return sinNearest * cosD + cosNearest * sinD;
+    }
+
+    // arc tangent of a value in [0, 1]
+    private static double atanUnit(double value) {
+        int i = (int) Math.rint(value * ATAN_STEPS);
+        double nearest = (double) i / ATAN_STEPS;
+        // atan(v) = atan(n) + atan((v - n) / (1 + vn)), |(v - n) / (1 + vn)| <= 1/1024 so that the terms dropped
+        // from the series of the second arc tangent are below 1e-21
+        double d = (value - nearest) / (1 + value * nearest);
+        double d2 = d * d;
+        return ATAN[i] + d * (1 - d2 * (1.0 / 3 - d2 / 5));
+    }
+
+    /**
+     * @param angle in radians
+     * @return sine of angle
+     */
+    public abstract double sin(double angle);
+
+    /**
+     * @param angle in radians
+     * @return cosine of angle
+     */
+    public abstract double cos(double angle);
+
+    /**
+     * @param value
+     * @return arc sine of value in [-π/2, π/2], NaN if value is not in [-1, 1]
+     */
+    public abstract double asin(double value);
+
+    /**
+     * @param y
+     * @param x
+     * @return angle of the point (x, y) in ]-π, π], as Math.atan2
+     */
+    public abstract double atan2(double y, double x);
+
+    /**
+     * @return upper bound of the absolute error of every function, in radians for asin and atan2
+     */
+    public abstract double maxError();
+}
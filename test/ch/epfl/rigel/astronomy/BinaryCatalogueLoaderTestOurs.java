@@ -0,0 +1,138 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCatalogueLoaderTestOurs {
+
+    static final String HYG_CATALOGUE_NAME =
+            "/hygdata_v3.csv";
+
+    private static final String BINARY_CATALOGUE_NAME =
+            "/hygdata_v3.bin";
+
+    private static StarCatalogue hygCatalogue() throws IOException {
+        try (InputStream hygStream = BinaryCatalogueLoaderTestOurs.class.getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder().loadFrom(hygStream, HygDatabaseLoader.INSTANCE).build();
+        }
+    }
+
+    // also used by the tests of the other catalogue loaders
+    static void assertSameStars(StarCatalogue expected, StarCatalogue actual) {
+        assertEquals(expected.starCount(), actual.starCount());
+        for (int i = 0; i < expected.starCount(); ++i) {
+            Star e = expected.star(i);
+            Star a = actual.star(i);
+            assertEquals(e.hipparcosId(), a.hipparcosId());
+            assertEquals(e.name(), a.name());
+            assertEquals(e.equatorialPos().ra(), a.equatorialPos().ra());
+            assertEquals(e.equatorialPos().dec(), a.equatorialPos().dec());
+            assertEquals(e.magnitude(), a.magnitude());
+            assertEquals(e.colorTemperature(), a.colorTemperature());
+        }
+    }
+
+    @Test
+    void writtenCatalogueIsReadBackIdentically() throws IOException {
+        StarCatalogue hyg = hygCatalogue();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryCatalogueWriter.write(hyg, bytes);
+        StarCatalogue binary = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(bytes.toByteArray()), BinaryCatalogueLoader.INSTANCE)
+                .build();
+        assertSameStars(hyg, binary);
+    }
+
+    @Test
+    void bundledBinaryCatalogueMatchesHygDatabase() throws IOException {
+        try (InputStream binaryStream = getClass().getResourceAsStream(BINARY_CATALOGUE_NAME)) {
+            assertNotNull(binaryStream);
+            StarCatalogue binary = new StarCatalogue.Builder()
+                    .loadFrom(binaryStream, BinaryCatalogueLoader.INSTANCE)
+                    .build();
+            assertSameStars(hygCatalogue(), binary);
+        }
+    }
+
+    @Test
+    void memoryMappedFileIsReadIdentically() throws IOException {
+        StarCatalogue hyg = hygCatalogue();
+        Path file = Files.createTempFile("rigel", ".bin");
+        try {
+            try (OutputStream os = Files.newOutputStream(file)) {
+                BinaryCatalogueWriter.write(hyg, os);
+            }
+            StarCatalogue binary = new StarCatalogue.Builder()
+                    .loadFrom(new FileInputStream(file.toFile()), BinaryCatalogueLoader.INSTANCE)
+                    .build();
+            assertSameStars(hyg, binary);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void loaderFailsOnOtherFormats() throws IOException {
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            assertThrows(IOException.class, () -> {
+                BinaryCatalogueLoader.INSTANCE.load(hygStream, new StarCatalogue.Builder());
+            });
+        }
+    }
+
+    @Test
+    void loaderFailsOnTruncatedCatalogue() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryCatalogueWriter.write(hygCatalogue(), bytes);
+        byte[] truncated = new byte[bytes.size() / 2];
+        System.arraycopy(bytes.toByteArray(), 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> {
+            BinaryCatalogueLoader.INSTANCE.load(new ByteArrayInputStream(truncated), new StarCatalogue.Builder());
+        });
+    }
+
+    private static byte[] twoStars() throws IOException {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        builder.addStar(1, "Açubens", 1.0, 0.5, 3.5f, 0.2f);
+        builder.addStar(2, "Rigel", 2.0, -0.5, 0.2f, -0.03f);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryCatalogueWriter.write(builder.build(), bytes);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void namesAreWrittenInUtf8() throws IOException {
+        StarCatalogue binary = new StarCatalogue.Builder()
+                .loadFrom(new ByteArrayInputStream(twoStars()), BinaryCatalogueLoader.INSTANCE)
+                .build();
+        assertEquals("Açubens", binary.star(0).name());
+        assertEquals("Rigel", binary.star(1).name());
+    }
+
+    @Test
+    void loaderFailsOnCorruptedColumns() throws IOException {
+        // header, then 28 bytes per star before the name offsets
+        int nameStartOffset = 16 + 28 * 2;
+        // the offsets are 0, 8 and 13: negative, past the name table and decreasing
+        int[][] corruptions = {{1, -1}, {1, 1000}, {2, 5}};
+        for (int[] corruption : corruptions) {
+            ByteBuffer corrupted = ByteBuffer.wrap(twoStars());
+            corrupted.putInt(nameStartOffset + 4 * corruption[0], corruption[1]);
+            assertThrows(IOException.class, () -> {
+                BinaryCatalogueLoader.INSTANCE.load(new ByteArrayInputStream(corrupted.array()), new StarCatalogue.Builder());
+            });
+        }
+        // declination of the first star out of range
+        ByteBuffer corrupted = ByteBuffer.wrap(twoStars());
+        corrupted.putDouble(16 + 8 * 2, 4.0);
+        assertThrows(IOException.class, () -> {
+            BinaryCatalogueLoader.INSTANCE.load(new ByteArrayInputStream(corrupted.array()), new StarCatalogue.Builder());
+        });
+    }
+}
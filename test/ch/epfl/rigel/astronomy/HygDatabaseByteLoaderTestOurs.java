@@ -0,0 +1,197 @@
+package ch.epfl.rigel.astronomy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static ch.epfl.rigel.astronomy.BinaryCatalogueLoaderTestOurs.HYG_CATALOGUE_NAME;
+import static ch.epfl.rigel.astronomy.BinaryCatalogueLoaderTestOurs.assertSameStars;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HygDatabaseByteLoaderTestOurs {
+
+    private static final String HEADER =
+            "id,hip,hd,hr,gl,bf,proper,ra,dec,dist,pmra,pmdec,rv,mag,absmag,spect,ci,x,y,z,vx,vy,vz,"
+                    + "rarad,decrad,pmrarad,pmdecrad,bayer,flam,con,comp,comp_primary,base,lum,var,var_min,var_max";
+
+    private static final String RIGEL =
+            "24378,24436,34085,1713,,19Bet Ori,Rigel,5.242298,-8.201640,264.5503,1.87,-0.56,20.7,0.180,-6.933,"
+                    + "B8Ia...,-0.030,18.9,253.9,-37.7,1.7e-05,2e-06,-2.1e-05,1.372430,-0.143145,"
+                    + "9.066e-09,-2.715e-09,Bet,19,Ori,1,24378,,44.3,,,";
+
+    private static final String NAMELESS =
+            "1,1,224700,,,,,0.000060,1.089009,219.7802,-5.20,-1.88,0.0,9.100,2.390,F5,0.482,219.7,0.003,4.177,"
+                    + "4.1e-05,-2.3e-05,-5.5e-05,0.000016,0.019007,-2.521e-08,-9.115e-09,,,Psc,1,1,,9.638,,,";
+
+    private static final String BAYER_ONLY =
+            "3,3,224690,,,,,0.000839,-19.498840,288.1845,-5.81,-1.70,0.0,9.270,2.018,K0,0.999,271.7,0.003,-96.2,"
+                    + "-2.2e-05,-7.1e-05,-1.6e-05,0.000220,-0.340320,,,Gam,,Cet,1,3,,15.758,,,";
+
+    private static StarCatalogue load(InputStream stream, StarCatalogue.Loader loader) throws IOException {
+        return new StarCatalogue.Builder().loadFrom(stream, loader).build();
+    }
+
+    private static StarCatalogue load(String text, StarCatalogue.Loader loader) throws IOException {
+        return load(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)), loader);
+    }
+
+    @Test
+    void loadsTheSameStarsAsHygDatabaseLoader() throws IOException {
+        StarCatalogue expected;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            expected = load(hygStream, HygDatabaseLoader.INSTANCE);
+        }
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            assertSameStars(expected, load(hygStream, HygDatabaseByteLoader.INSTANCE));
+        }
+    }
+
+    @Test
+    void parallelLoaderLoadsTheSameStarsInTheSameOrder() throws IOException {
+        StarCatalogue expected;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            expected = load(hygStream, HygDatabaseLoader.INSTANCE);
+        }
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            assertSameStars(expected, load(hygStream, HygDatabaseByteLoader.PARALLEL));
+        }
+        byte[] bytes;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            bytes = hygStream.readAllBytes();
+        }
+        for (int chunkCount : new int[]{2, 3, 7, 64, 20_000}) {
+            StarCatalogue.Builder builder = new StarCatalogue.Builder();
+            HygDatabaseByteLoader.load(bytes, builder, chunkCount);
+            assertSameStars(expected, builder.build());
+        }
+    }
+
+    @Test
+    void asterismsHaveTheSameIndicesWithTheParallelLoader() throws IOException {
+        StarCatalogue expected;
+        StarCatalogue actual;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream asterismStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            expected = new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(asterismStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+        byte[] bytes;
+        try (InputStream hygStream = getClass().getResourceAsStream(HYG_CATALOGUE_NAME)) {
+            bytes = hygStream.readAllBytes();
+        }
+        try (InputStream asterismStream = getClass().getResourceAsStream("/asterisms.txt")) {
+            StarCatalogue.Builder builder = new StarCatalogue.Builder();
+            HygDatabaseByteLoader.load(bytes, builder, 13);
+            actual = builder.loadFrom(asterismStream, AsterismLoader.INSTANCE).build();
+        }
+        assertEquals(expected.asterisms().size(), actual.asterisms().size());
+        List<List<Integer>> expectedIndices = new ArrayList<>();
+        List<List<Integer>> actualIndices = new ArrayList<>();
+        for (Asterism a : expected.asterisms()) {
+            expectedIndices.add(expected.asterismIndices(a));
+        }
+        for (Asterism a : actual.asterisms()) {
+            actualIndices.add(actual.asterismIndices(a));
+        }
+        assertEquals(new HashSet<>(expectedIndices), new HashSet<>(actualIndices));
+    }
+
+    @Test
+    void chunksSplitWindowsLineBreaksCorrectly() throws IOException {
+        StringBuilder text = new StringBuilder(HEADER);
+        for (int i = 0; i < 50; ++i) {
+            text.append("\r\n").append(i % 2 == 0 ? RIGEL : NAMELESS);
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+        StarCatalogue expected = load(text.toString(), HygDatabaseByteLoader.INSTANCE);
+        for (int chunkCount = 2; chunkCount < 200; ++chunkCount) {
+            StarCatalogue.Builder builder = new StarCatalogue.Builder();
+            HygDatabaseByteLoader.load(bytes, builder, chunkCount);
+            assertSameStars(expected, builder.build());
+        }
+    }
+
+    @Test
+    void namesAndMissingValuesAreHandledAsInHygDatabaseLoader() throws IOException {
+        String text = HEADER + "\n" + RIGEL + "\n" + NAMELESS + "\n" + BAYER_ONLY + "\n";
+        StarCatalogue catalogue = load(text, HygDatabaseByteLoader.INSTANCE);
+        assertSameStars(load(text, HygDatabaseLoader.INSTANCE), catalogue);
+        assertEquals("Rigel", catalogue.star(0).name());
+        assertEquals("? Psc", catalogue.star(1).name());
+        assertEquals("Gam Cet", catalogue.star(2).name());
+    }
+
+    @Test
+    void windowsLineBreaksAndMissingFinalBreakWork() throws IOException {
+        String unix = HEADER + "\n" + RIGEL + "\n" + NAMELESS + "\n";
+        String windows = HEADER + "\r\n" + RIGEL + "\r\n" + NAMELESS;
+        assertSameStars(load(unix, HygDatabaseLoader.INSTANCE), load(windows, HygDatabaseByteLoader.INSTANCE));
+    }
+
+    @Test
+    void emptyFileGivesEmptyCatalogue() throws IOException {
+        assertEquals(0, load("", HygDatabaseByteLoader.INSTANCE).starCount());
+        assertEquals(0, load(HEADER + "\n", HygDatabaseByteLoader.INSTANCE).starCount());
+    }
+
+    @Test
+    void missingColumnThrowsIOException() {
+        assertThrows(IOException.class, () -> load(HEADER.replace("rarad", "ra_rad") + "\n" + RIGEL,
+                HygDatabaseByteLoader.INSTANCE));
+    }
+
+    @Test
+    void invalidNumberThrowsNumberFormatException() {
+        assertThrows(NumberFormatException.class, () -> load(HEADER + "\n" + RIGEL.replace("0.180", "0.1x0"),
+                HygDatabaseByteLoader.INSTANCE));
+        assertThrows(NumberFormatException.class, () -> load(HEADER + "\n" + RIGEL.replace("24378,24436", "24378,24a36"),
+                HygDatabaseByteLoader.INSTANCE));
+    }
+
+    @Test
+    void parseDoubleIsExactlyDoubleParseDouble() {
+        SplittableRandom rng = new SplittableRandom(2020);
+        for (int i = 0; i < 500_000; ++i) {
+            String s;
+            switch (i % 5) {
+                case 0:
+                    s = Double.toString(rng.nextDouble(-Math.PI, Math.PI));
+                    break;
+                case 1:
+                    s = String.format(Locale.ROOT, "%.6f", rng.nextDouble(-90, 90));
+                    break;
+                case 2:
+                    s = String.format(Locale.ROOT, "%.3f", rng.nextDouble(-2, 20));
+                    break;
+                case 3:
+                    s = rng.nextInt(100_000) + "e" + (rng.nextInt(60) - 30);
+                    break;
+                default:
+                    s = Double.toString(Double.longBitsToDouble(rng.nextLong(0x7FF0000000000000L)));
+                    break;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(s), HygCsvParser.parseDouble(bytes, 0, bytes.length), s);
+        }
+        for (String s : new String[]{"0", "-0.0", "+1.5", ".5", "5.", "1E5", "9007199254740993", "0.1234567890123456789", "1e-400", "Infinity",
+                "0.000000000000000000000000000", "9007199254740993e-3", "2.2250738585072014E-308", "4.9e-324", "1.7976931348623157E308",
+                "1e5d", "1e5 ", "1e+5", "1e-05", "1e0005", "1e99999999999", "1e-99999999999"}) {
+            byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(s), HygCsvParser.parseDouble(bytes, 0, bytes.length), s);
+        }
+        for (String s : new String[]{"", "-", ".", "1e", "1e+", "1e5x", "1e--5", "1.2.3", "1,5"}) {
+            byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+            assertThrows(NumberFormatException.class, () -> HygCsvParser.parseDouble(bytes, 0, bytes.length), s);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntIndexMapTestOurs {
+
+    @Test
+    void behavesLikeHashMap() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        IntIndexMap map = new IntIndexMap(0);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50 * TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            int key = rng.nextInt(-100_000, 100_000);
+            assertEquals(expected.putIfAbsent(key, i) == null, map.putIfAbsent(key, i));
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -100_000; key < 100_000; ++key)
+            assertEquals(expected.getOrDefault(key, -1), map.get(key));
+    }
+
+    @Test
+    void putIfAbsentFailsOnNegativeValue() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new IntIndexMap(4).putIfAbsent(1, -1);
+        });
+    }
+
+    @Test
+    void builderFindsFirstStarWithHipparcosNumber() {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder()
+                .addStar(0, "A", 0.1, 0.1, 1f, 0f)
+                .addStar(42, "B", 0.2, 0.2, 1f, 0f)
+                .addStar(42, "C", 0.3, 0.3, 1f, 0f)
+                .addStar(7, "D", 0.4, 0.4, 1f, 0f);
+        assertEquals(1, builder.indexOfHipparcos(42));
+        assertEquals(3, builder.indexOfHipparcos(7));
+        assertEquals(-1, builder.indexOfHipparcos(0));
+        assertEquals(-1, builder.indexOfHipparcos(8));
+    }
+}
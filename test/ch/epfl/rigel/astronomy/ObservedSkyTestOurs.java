@@ -1,14 +1,61 @@
 package ch.epfl.rigel.astronomy;
 
+import ch.epfl.rigel.coordinates.CartesianCoordinates;
+import ch.epfl.rigel.coordinates.EquatorialToHorizontalConversion;
 import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import ch.epfl.rigel.math.EuclidianDistance;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class ObservedSkyTestOurs {
 
+    private static final String HYG_CATALOGUE_NAME =
+            "/hygdata_v3.csv";
+
+    private static final String ASTERISM_CATALOGUE_NAME =
+            "/asterisms.txt";
+
+    private static final ZonedDateTime WHEN =
+            ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC);
+
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+
+    private static StarCatalogue catalogue() throws IOException {
+        try (InputStream hygStream = ObservedSkyTestOurs.class.getResourceAsStream(HYG_CATALOGUE_NAME);
+             InputStream asterismStream = ObservedSkyTestOurs.class.getResourceAsStream(ASTERISM_CATALOGUE_NAME)) {
+            return new StarCatalogue.Builder()
+                    .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
+                    .loadFrom(asterismStream, AsterismLoader.INSTANCE)
+                    .build();
+        }
+    }
+
+    private static ObservedSky observedSky() throws IOException {
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(277, -23));
+        return new ObservedSky(WHEN, WHERE, projection, catalogue());
+    }
+
+    private static void assertSamePositions(ObservedSky expected, ObservedSky actual) {
+        assertArrayEquals(expected.starPositions(), actual.starPositions());
+        assertArrayEquals(expected.planetPositions(), actual.planetPositions());
+        assertEquals(expected.sunPosition().x(), actual.sunPosition().x());
+        assertEquals(expected.sunPosition().y(), actual.sunPosition().y());
+        assertEquals(expected.moonPosition().x(), actual.moonPosition().x());
+        assertEquals(expected.moonPosition().y(), actual.moonPosition().y());
+    }
+
     @Test
     void stars() {
     }
@@ -17,7 +64,234 @@ class ObservedSkyTestOurs {
     void starIndices() {
     }
 
+    // linear search, in the order of objectClosestTo: planets, stars, Sun, Moon
+    private static CelestialObject closestByScan(ObservedSky sky, double x, double y, double maxDist) {
+        CelestialObject closest = null;
+        double closestDist = maxDist;
+        for (int i = 0; i < sky.planetCount(); ++i) {
+            double dist = EuclidianDistance.distance(sky.planetX(i), sky.planetY(i), x, y);
+            if (dist < closestDist) {
+                closest = sky.planet(i);
+                closestDist = dist;
+            }
+        }
+        for (int i = 0; i < sky.starCount(); ++i) {
+            double dist = EuclidianDistance.distance(sky.starX(i), sky.starY(i), x, y);
+            if (dist < closestDist) {
+                closest = sky.star(i);
+                closestDist = dist;
+            }
+        }
+        double sunDist = EuclidianDistance.distance(sky.sunPosition().x(), sky.sunPosition().y(), x, y);
+        if (sunDist < closestDist) {
+            closest = sky.sun();
+            closestDist = sunDist;
+        }
+        double moonDist = EuclidianDistance.distance(sky.moonPosition().x(), sky.moonPosition().y(), x, y);
+        if (moonDist < closestDist) {
+            closest = sky.moon();
+        }
+        return closest;
+    }
+
+    @Test
+    void objectClosestTo() throws IOException {
+        ObservedSky sky = observedSky();
+        Random random = new Random(2020);
+        int found = 0;
+        for (int i = 0; i < 2000; ++i) {
+            // mostly where the canvas looks, some far beyond the grid
+            double extent = i % 10 == 0 ? 50 : 2;
+            double x = (2 * random.nextDouble() - 1) * extent;
+            double y = (2 * random.nextDouble() - 1) * extent;
+            double maxDist = i % 100 == 0 ? 10 : random.nextDouble() * 0.05;
+            CelestialObject expected = closestByScan(sky, x, y, maxDist);
+            assertSame(expected, sky.objectClosestTo(CartesianCoordinates.of(x, y), maxDist));
+            found += expected == null ? 0 : 1;
+        }
+        assertTrue(found > 100);
+    }
+
+    @Test
+    void objectClosestToFindsEveryObjectAtItsPosition() throws IOException {
+        ObservedSky sky = observedSky();
+        for (int i = 0; i < sky.planetCount(); ++i) {
+            assertSame(sky.planet(i), sky.objectClosestTo(CartesianCoordinates.of(sky.planetX(i), sky.planetY(i)), 1e-9));
+        }
+        assertSame(sky.sun(), sky.objectClosestTo(sky.sunPosition(), 1e-9));
+        assertSame(sky.moon(), sky.objectClosestTo(sky.moonPosition(), 1e-9));
+        for (int i = 0; i < sky.starCount(); i += 7) {
+            CelestialObject closest = sky.objectClosestTo(CartesianCoordinates.of(sky.starX(i), sky.starY(i)), 1e-9);
+            // stars at the very same position as an earlier one go to the earlier one
+            assertSame(closestByScan(sky, sky.starX(i), sky.starY(i), 1e-9), closest);
+            assertNotNull(closest);
+        }
+        assertNull(sky.objectClosestTo(CartesianCoordinates.of(0.5, 0.5), 0));
+    }
+
+    @Test
+    void indexedAccessorsMatchCopyingAccessors() throws IOException {
+        ObservedSky sky = observedSky();
+
+        Star[] stars = sky.stars();
+        double[] starPositions = sky.starPositions();
+        assertEquals(stars.length, sky.starCount());
+        assertEquals(starPositions.length, sky.starPositionsView().remaining());
+        for (int i = 0; i < sky.starCount(); ++i) {
+            assertSame(stars[i], sky.star(i));
+            assertEquals(starPositions[2 * i], sky.starX(i));
+            assertEquals(starPositions[2 * i + 1], sky.starY(i));
+        }
+
+        Planet[] planets = sky.planets();
+        double[] planetPositions = sky.planetPositions();
+        assertEquals(planets.length, sky.planetCount());
+        for (int i = 0; i < sky.planetCount(); ++i) {
+            assertSame(planets[i], sky.planet(i));
+            assertEquals(planetPositions[2 * i], sky.planetX(i));
+            assertEquals(planetPositions[2 * i + 1], sky.planetY(i));
+        }
+    }
+
+    @Test
+    void starsAreProjectedAsByTheCoordinateObjects() throws IOException {
+        ObservedSky sky = observedSky();
+        EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(WHEN, WHERE);
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(277, -23));
+        for (int i = 0; i < sky.starCount(); ++i) {
+            CartesianCoordinates expected = projection.apply(conversion.apply(sky.star(i).equatorialPos()));
+            // stars are projected by a rotation of their unit vectors, the same up to rounding
+            double r = Math.hypot(expected.x(), expected.y());
+            assertEquals(expected.x(), sky.starX(i), 1e-9 * (1 + r * r));
+            assertEquals(expected.y(), sky.starY(i), 1e-9 * (1 + r * r));
+        }
+    }
+
+    @Test
+    void sharedSkyStateGivesTheSamePositionsForEveryProjection() throws IOException {
+        StarCatalogue catalogue = catalogue();
+        SkyState state = new SkyState(WHEN, WHERE, catalogue);
+        for (HorizontalCoordinates center : new HorizontalCoordinates[]{
+                HorizontalCoordinates.ofDeg(277, -23), HorizontalCoordinates.ofDeg(180, 15), HorizontalCoordinates.ofDeg(0, 89)}) {
+            StereographicProjection projection = new StereographicProjection(center);
+            ObservedSky projected = new ObservedSky(state, projection);
+            assertSame(state, projected.state());
+            assertSamePositions(new ObservedSky(WHEN, WHERE, projection, catalogue), projected);
+        }
+    }
+
+    @Test
+    void parallelSkyStateGivesTheSamePositions() throws IOException {
+        // more stars than one task takes, so that they are really cut in ranges
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        Random random = new Random(2020);
+        for (int i = 0; i < 8 * StarRanges.MIN_STARS_PER_TASK; ++i) {
+            builder.addStar(i + 1, "Star" + i, random.nextDouble() * 2 * Math.PI,
+                    Math.asin(2 * random.nextDouble() - 1), 5f, 0f);
+        }
+        StarCatalogue catalogue = builder.build();
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ObservedSky parallel = new ObservedSky(new SkyState(WHEN, WHERE, catalogue, pool), projection);
+            assertSamePositions(new ObservedSky(WHEN, WHERE, projection, catalogue), parallel);
+        } finally {
+            pool.shutdown();
+        }
+        assertSamePositions(new ObservedSky(WHEN, WHERE, projection, catalogue),
+                new ObservedSky(new SkyState(WHEN, WHERE, catalogue, true), projection));
+    }
+
+    @Test
+    void culledSkyProjectsEveryStarInTheCapAndAsterisms() throws IOException {
+        StarCatalogue catalogue = catalogue();
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(120, 30));
+        ObservedSky full = new ObservedSky(new SkyState(WHEN, WHERE, catalogue), projection);
+        // a state never projected before, whose stars are converted cell by cell
+        SkyState state = new SkyState(WHEN, WHERE, catalogue);
+        double cullRadius = Math.toRadians(30);
+        ObservedSky culled = new ObservedSky(state, projection, cullRadius);
+
+        boolean[] projected = new boolean[catalogue.starCount()];
+        for (int k = 0; k < culled.projectedStarCount(); ++k) {
+            int i = culled.projectedStar(k);
+            assertFalse(projected[i]);
+            projected[i] = true;
+            assertEquals(full.starX(i), culled.starX(i));
+            assertEquals(full.starY(i), culled.starY(i));
+        }
+        int projectedCount = 0;
+        for (int i = 0; i < catalogue.starCount(); ++i) {
+            // distance to the center from the distance to the origin of the plane
+            double angle = 2 * Math.atan(Math.hypot(full.starX(i), full.starY(i)));
+            if (angle <= cullRadius) {
+                assertTrue(projected[i]);
+            }
+            if (!projected[i]) {
+                assertTrue(Double.isNaN(culled.starX(i)));
+                assertTrue(Double.isNaN(culled.starY(i)));
+            }
+            projectedCount += projected[i] ? 1 : 0;
+        }
+        for (Asterism asterism : catalogue.asterisms()) {
+            for (int i : catalogue.asterismIndices(asterism)) {
+                assertTrue(projected[i]);
+            }
+        }
+        assertTrue(projectedCount < catalogue.starCount() / 2);
+
+        // the cells not converted yet are when the whole sky is projected
+        assertSamePositions(full, new ObservedSky(state, projection));
+        assertEquals(catalogue.starCount(), full.projectedStarCount());
+    }
+
+    @Test
+    void magnitudeLimitProjectsExactlyTheBrighterStarsAndAsterisms() throws IOException {
+        StarCatalogue catalogue = catalogue();
+        boolean[] inAsterism = new boolean[catalogue.starCount()];
+        for (Asterism asterism : catalogue.asterisms()) {
+            for (int i : catalogue.asterismIndices(asterism)) {
+                inAsterism[i] = true;
+            }
+        }
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(300, 10));
+        ObservedSky full = new ObservedSky(new SkyState(WHEN, WHERE, catalogue), projection);
+        SkyState state = new SkyState(WHEN, WHERE, catalogue);
+
+        // the faint stars of the cells are converted after the bright ones, by the later skies
+        for (double limit : new double[]{2, 4, 6, Double.POSITIVE_INFINITY}) {
+            ObservedSky limited = new ObservedSky(state, projection, Math.PI, limit);
+            boolean[] projected = new boolean[catalogue.starCount()];
+            for (int k = 0; k < limited.projectedStarCount(); ++k) {
+                projected[limited.projectedStar(k)] = true;
+            }
+            for (int i = 0; i < catalogue.starCount(); ++i) {
+                assertEquals(catalogue.starMagnitude(i) <= limit || inAsterism[i], projected[i]);
+                if (projected[i]) {
+                    assertEquals(full.starX(i), limited.starX(i));
+                    assertEquals(full.starY(i), limited.starY(i));
+                }
+            }
+        }
+        assertSamePositions(full, new ObservedSky(state, projection));
+    }
+
+    @Test
+    void culledSkyOnlySearchesProjectedStars() throws IOException {
+        StereographicProjection projection = new StereographicProjection(HorizontalCoordinates.ofDeg(120, 30));
+        ObservedSky culled = new ObservedSky(new SkyState(WHEN, WHERE, catalogue()), projection, Math.toRadians(20));
+        for (int k = 0; k < culled.projectedStarCount(); k += 5) {
+            int i = culled.projectedStar(k);
+            CelestialObject closest = culled.objectClosestTo(CartesianCoordinates.of(culled.starX(i), culled.starY(i)), 1e-9);
+            assertNotNull(closest);
+        }
+        assertNull(culled.objectClosestTo(CartesianCoordinates.of(100, 100), 1));
+    }
+
     @Test
-    void objectClosestTo() {
+    void positionViewsAreReadOnly() throws IOException {
+        ObservedSky sky = observedSky();
+        assertTrue(sky.starPositionsView().isReadOnly());
+        assertTrue(sky.planetPositionsView().isReadOnly());
     }
-}
\ No newline at end of file
+}
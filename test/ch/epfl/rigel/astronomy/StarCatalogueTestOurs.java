@@ -0,0 +1,85 @@
+package ch.epfl.rigel.astronomy;
+
+import ch.epfl.rigel.coordinates.EquatorialCoordinates;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StarCatalogueTestOurs {
+
+    @Test
+    void starsAddedFromAttributesMatchStarConstructor() {
+        StarCatalogue catalogue = new StarCatalogue.Builder()
+                .addStar(24436, "Rigel", 1.3724303693276385, -0.143145630755865, 0.18f, -0.03f)
+                .build();
+        Star expected = new Star(24436, "Rigel", EquatorialCoordinates.of(1.3724303693276385, -0.143145630755865), 0.18f, -0.03f);
+        Star rigel = catalogue.star(0);
+
+        assertEquals(1, catalogue.starCount());
+        assertEquals(expected.name(), rigel.name());
+        assertEquals(expected.hipparcosId(), rigel.hipparcosId());
+        assertEquals(expected.equatorialPos().ra(), rigel.equatorialPos().ra());
+        assertEquals(expected.equatorialPos().dec(), rigel.equatorialPos().dec());
+        assertEquals(expected.magnitude(), rigel.magnitude());
+        assertEquals(expected.colorTemperature(), rigel.colorTemperature());
+
+        assertEquals(expected.magnitude(), catalogue.starMagnitude(0));
+        assertEquals(expected.colorTemperature(), catalogue.starColorTemperature(0));
+        assertEquals(expected.hipparcosId(), catalogue.starHipparcosId(0));
+    }
+
+    @Test
+    void lazilyInstantiatedStarsKeepTheirIdentity() {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder()
+                .addStar(1, "A", 0.1, 0.1, 1f, 0f)
+                .addStar(2, "B", 0.2, 0.2, 2f, 0f);
+        // an asterism built from the builder's view must be found again in the catalogue
+        Asterism asterism = new Asterism(List.of(builder.stars().get(1), builder.stars().get(0)));
+        StarCatalogue catalogue = builder.addAsterism(asterism).build();
+
+        assertSame(catalogue.star(0), catalogue.star(0));
+        assertSame(catalogue.star(1), catalogue.stars().get(1));
+        assertEquals(List.of(1, 0), catalogue.asterismIndices(asterism));
+    }
+
+    @Test
+    void starsGivenAsObjectsAreKept() {
+        Star star = new Star(3, "C", EquatorialCoordinates.of(0.3, 0.3), 3f, 1f);
+        StarCatalogue catalogue = new StarCatalogue.Builder().addStar(star).build();
+        assertSame(star, catalogue.star(0));
+    }
+
+    @Test
+    void addStarFailsOnInvalidAttributes() {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        assertThrows(IllegalArgumentException.class, () -> {
+            builder.addStar(-1, "A", 0.1, 0.1, 1f, 0f);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            builder.addStar(1, "A", 7, 0.1, 1f, 0f);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            builder.addStar(1, "A", 0.1, 2, 1f, 0f);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            builder.addStar(1, "A", 0.1, 0.1, 1f, 6f);
+        });
+        assertThrows(NullPointerException.class, () -> {
+            builder.addStar(1, null, 0.1, 0.1, 1f, 0f);
+        });
+        assertTrue(builder.stars().isEmpty());
+    }
+
+    @Test
+    void builderGrowsPastItsInitialCapacity() {
+        StarCatalogue.Builder builder = new StarCatalogue.Builder();
+        for (int i = 0; i < 1000; ++i)
+            builder.addStar(i, "S" + i, 0.001 * i, 0, i, 0);
+        StarCatalogue catalogue = builder.build();
+        assertEquals(1000, catalogue.starCount());
+        assertEquals("S999", catalogue.star(999).name());
+        assertEquals(999, catalogue.starMagnitude(999));
+    }
+}
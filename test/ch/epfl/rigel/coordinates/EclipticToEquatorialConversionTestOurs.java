@@ -1,7 +1,31 @@
 package ch.epfl.rigel.coordinates;
 
+import ch.epfl.rigel.math.Trigonometry;
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.SplittableRandom;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class EclipticToEquatorialConversionTestOurs {
 
-}
\ No newline at end of file
+    @Test
+    void displayTrigonometryIsCloseToPrecise() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        ZonedDateTime when = ZonedDateTime.of(2020, 4, 4, 21, 30, 0, 0, ZoneOffset.UTC);
+        EclipticToEquatorialConversion precise = new EclipticToEquatorialConversion(when);
+        EclipticToEquatorialConversion display = new EclipticToEquatorialConversion(when, Trigonometry.DISPLAY);
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            EclipticCoordinates ecliptic = EclipticCoordinates.of(rng.nextDouble(0, 2 * Math.PI),
+                    rng.nextDouble(-Math.PI / 2, Math.PI / 2));
+            EquatorialCoordinates expected = precise.apply(ecliptic);
+            EquatorialCoordinates actual = display.apply(ecliptic);
+            // the arc sine of a sine close to 1 loses half of its digits, as it does with java.lang.Math
+            assertEquals(0, Math.IEEEremainder(actual.ra() - expected.ra(), 2 * Math.PI), 1e-6);
+            assertEquals(expected.dec(), actual.dec(), 1e-6);
+        }
+    }
+}
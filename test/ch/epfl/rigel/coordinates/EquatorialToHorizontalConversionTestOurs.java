@@ -1,9 +1,14 @@
 package ch.epfl.rigel.coordinates;
 
+import ch.epfl.rigel.math.Trigonometry;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.time.*;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class EquatorialToHorizontalConversionTestOurs {
   /**  ZonedDateTime date1 = ZonedDateTime.of(LocalDateTime.of(LocalDate.of(2000,Month.AUGUST,26), LocalTime.of(0,5,18,(int) 2.35e7)), ZoneOffset.UTC);
@@ -24,4 +29,46 @@ class EquatorialToHorizontalConversionTestOurs {
     @Test
     void testEquals() {
     } **/
-}
\ No newline at end of file
+
+    @Test
+    void inverseApplyUndoesApply() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        ZonedDateTime when = ZonedDateTime.of(2020, 4, 4, 21, 30, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            GeographicCoordinates where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-89, 89));
+            EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(when.plusMinutes(i), where);
+            EquatorialCoordinates equatorial = EquatorialCoordinates.of(rng.nextDouble(0, 2 * Math.PI),
+                    rng.nextDouble(-1.5, 1.5));
+            EquatorialCoordinates back = conversion.inverseApply(conversion.apply(equatorial));
+            // right ascensions close to 0 and 2 PI are the same
+            double raDelta = Math.IEEEremainder(back.ra() - equatorial.ra(), 2 * Math.PI);
+            assertEquals(0, raDelta, 1e-9);
+            assertEquals(equatorial.dec(), back.dec(), 1e-9);
+        }
+    }
+
+    @Test
+    void displayTrigonometryProjectsWithinAThousandthOfAPixel() {
+        // the largest scale of the program: a 4K canvas with the narrowest field of view, 30 degrees
+        SplittableRandom rng = TestRandomizer.newRandom();
+        ZonedDateTime when = ZonedDateTime.of(2020, 4, 4, 21, 30, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            GeographicCoordinates where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-90, 90));
+            HorizontalCoordinates center = HorizontalCoordinates.ofDeg(rng.nextDouble(0, 360), rng.nextDouble(-90, 90));
+            StereographicProjection precise = new StereographicProjection(center);
+            StereographicProjection display = new StereographicProjection(center, Trigonometry.DISPLAY);
+            double pixelsPerUnit = 3840 / precise.applyToAngle(Math.toRadians(30));
+            EquatorialCoordinates equatorial = EquatorialCoordinates.of(rng.nextDouble(0, 2 * Math.PI),
+                    rng.nextDouble(-Math.PI / 2, Math.PI / 2));
+
+            CartesianCoordinates expected = precise.apply(
+                    new EquatorialToHorizontalConversion(when.plusMinutes(i), where).apply(equatorial));
+            CartesianCoordinates actual = display.apply(
+                    new EquatorialToHorizontalConversion(when.plusMinutes(i), where, Trigonometry.DISPLAY).apply(equatorial));
+            // the scale of the projection, 1 + r², grows towards the antipode of the center, off the canvas
+            double scale = 1 + expected.x() * expected.x() + expected.y() * expected.y();
+            assertEquals(expected.x(), actual.x(), 1e-3 / pixelsPerUnit * scale);
+            assertEquals(expected.y(), actual.y(), 1e-3 / pixelsPerUnit * scale);
+        }
+    }
+}
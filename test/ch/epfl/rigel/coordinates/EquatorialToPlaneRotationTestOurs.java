@@ -0,0 +1,111 @@
+package ch.epfl.rigel.coordinates;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EquatorialToPlaneRotationTestOurs {
+
+    private static final ZonedDateTime WHEN = ZonedDateTime.of(2020, 4, 4, 21, 30, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void rotationMatchesConversionAndProjectionChain() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (int k = 0; k < 20; ++k) {
+            GeographicCoordinates where = GeographicCoordinates.ofDeg(rng.nextDouble(-180, 180), rng.nextDouble(-90, 90));
+            HorizontalCoordinates center = HorizontalCoordinates.ofDeg(rng.nextDouble(0, 360), rng.nextDouble(-90, 90));
+            EquatorialToHorizontalConversion conversion = new EquatorialToHorizontalConversion(WHEN.plusHours(k), where);
+            StereographicProjection projection = new StereographicProjection(center);
+
+            int count = TestRandomizer.RANDOM_ITERATIONS;
+            double[] ra = new double[count], dec = new double[count];
+            double[] x = new double[count], y = new double[count], z = new double[count];
+            int[] xyIndex = new int[count];
+            for (int i = 0; i < count; ++i) {
+                ra[i] = rng.nextDouble(0, 2 * Math.PI);
+                dec[i] = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+                x[i] = Math.cos(dec[i]) * Math.cos(ra[i]);
+                y[i] = Math.cos(dec[i]) * Math.sin(ra[i]);
+                z[i] = Math.sin(dec[i]);
+                xyIndex[i] = count - 1 - i;
+            }
+            double[] xy = new double[2 * count];
+            new EquatorialToPlaneRotation(conversion, projection).apply(x, y, z, xy, 0, count, xyIndex);
+
+            for (int i = 0; i < count; ++i) {
+                CartesianCoordinates expected = projection.apply(conversion.apply(EquatorialCoordinates.of(ra[i], dec[i])));
+                // rounding grows as the scale of the projection, 1 + r², towards the antipode of the center
+                double r = Math.hypot(expected.x(), expected.y());
+                double delta = 1e-9 * (1 + r * r);
+                assertEquals(expected.x(), xy[2 * xyIndex[i]], delta);
+                assertEquals(expected.y(), xy[2 * xyIndex[i] + 1], delta);
+            }
+        }
+    }
+
+    @Test
+    void selectedKernelGivesExactlyTheScalarResults() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        EquatorialToPlaneRotation rotation = new EquatorialToPlaneRotation(
+                new EquatorialToHorizontalConversion(WHEN, GeographicCoordinates.ofDeg(6.57, 46.52)),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(200, 30)));
+        int count = TestRandomizer.RANDOM_ITERATIONS;
+        double[] x = new double[count], y = new double[count], z = new double[count];
+        int[] xyIndex = new int[count];
+        for (int i = 0; i < count; ++i) {
+            double ra = rng.nextDouble(0, 2 * Math.PI), dec = rng.nextDouble(-Math.PI / 2, Math.PI / 2);
+            x[i] = Math.cos(dec) * Math.cos(ra);
+            y[i] = Math.cos(dec) * Math.sin(ra);
+            z[i] = Math.sin(dec);
+            xyIndex[i] = (i * 7919) % count;
+        }
+        // ranges not multiple of any vector length, so that the scalar end of the kernel is used too
+        for (int from = 0, to = 3; to <= count; from = to, to += 37) {
+            double[] expected = new double[2 * count], actual = new double[2 * count];
+            EquatorialToPlaneRotation.applyScalar(rotation.matrix(), x, y, z, expected, from, to, xyIndex);
+            rotation.apply(x, y, z, actual, from, to, xyIndex);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void rangeOnlyWritesItsScatteredSlice() {
+        EquatorialToPlaneRotation rotation = new EquatorialToPlaneRotation(
+                new EquatorialToHorizontalConversion(WHEN, GeographicCoordinates.ofDeg(6.57, 46.52)),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45)));
+        double[] x = {0.6, 0.6, 0.6, 0.6};
+        double[] y = {0.8, 0, 0.8, 0};
+        double[] z = {0, 0.8, 0, 0.8};
+        double[] xy = new double[8];
+        rotation.apply(x, y, z, xy, 1, 3, new int[]{0, 3, 1, 2});
+        assertEquals(0, xy[0]);
+        assertEquals(0, xy[1]);
+        assertNotEquals(0, xy[2]);
+        assertNotEquals(0, xy[3]);
+        assertEquals(0, xy[4]);
+        assertEquals(0, xy[5]);
+        assertNotEquals(0, xy[6]);
+        assertNotEquals(0, xy[7]);
+    }
+
+    @Test
+    void applyFailsOnMismatchedArrays() {
+        EquatorialToPlaneRotation rotation = new EquatorialToPlaneRotation(
+                new EquatorialToHorizontalConversion(WHEN, GeographicCoordinates.ofDeg(6.57, 46.52)),
+                new StereographicProjection(HorizontalCoordinates.ofDeg(180, 45)));
+        assertThrows(IllegalArgumentException.class, () -> {
+            rotation.apply(new double[2], new double[3], new double[2], new double[4], 0, 2, new int[2]);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            rotation.apply(new double[2], new double[2], new double[2], new double[4], 0, 2, new int[3]);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            rotation.apply(new double[2], new double[2], new double[2], new double[4], 1, 3, new int[2]);
+        });
+    }
+}
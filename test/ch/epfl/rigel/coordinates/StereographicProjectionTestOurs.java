@@ -1,7 +1,11 @@
 package ch.epfl.rigel.coordinates;
 
+import ch.epfl.rigel.math.Trigonometry;
+import ch.epfl.test.TestRandomizer;
 import org.junit.jupiter.api.Test;
 
+import java.util.SplittableRandom;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class StereographicProjectionTestOurs {
@@ -38,4 +42,17 @@ class StereographicProjectionTestOurs {
         System.out.println(transformer.toString());
     }
 **/
-}
\ No newline at end of file
+
+    @Test
+    void displayInverseIsCloseToPrecise() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            HorizontalCoordinates center = HorizontalCoordinates.ofDeg(rng.nextDouble(0, 360), rng.nextDouble(-90, 90));
+            CartesianCoordinates xy = CartesianCoordinates.of(rng.nextDouble(-1, 1), rng.nextDouble(-1, 1));
+            HorizontalCoordinates expected = new StereographicProjection(center).inverseApply(xy);
+            HorizontalCoordinates actual = new StereographicProjection(center, Trigonometry.DISPLAY).inverseApply(xy);
+            assertEquals(0, Math.IEEEremainder(actual.az() - expected.az(), 2 * Math.PI), 1e-6);
+            assertEquals(expected.alt(), actual.alt(), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.Star;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlackBodyColorTestOurs {
+
+    @Test
+    void colorForTemperatureWorksOnKnownValues() {
+        assertEquals(Color.web("#ff3800"), BlackBodyColor.colorForTemperature(1000));
+        assertEquals(Color.web("#ff3800"), BlackBodyColor.colorForTemperature(1049.9));
+        assertEquals(Color.web("#ff4700"), BlackBodyColor.colorForTemperature(1050));
+        assertEquals(Color.web("#9bbcff"), BlackBodyColor.colorForTemperature(40000));
+    }
+
+    @Test
+    void tablesAgreeForEveryTemperature() {
+        for (int kelvin = 1000; kelvin <= 40000; kelvin += 10) {
+            int bucket = Star.colorTemperatureBucket(kelvin);
+            Color color = BlackBodyColor.colorForTemperature(kelvin);
+            int argb = BlackBodyColor.argbForTemperature(kelvin);
+            assertSame(color, BlackBodyColor.colorForBucket(bucket));
+            assertEquals(argb, BlackBodyColor.argbForBucket(bucket));
+            assertEquals(0xFF, argb >>> 24);
+            assertEquals((int) Math.round(color.getRed() * 255), (argb >> 16) & 0xFF);
+            assertEquals((int) Math.round(color.getGreen() * 255), (argb >> 8) & 0xFF);
+            assertEquals((int) Math.round(color.getBlue() * 255), argb & 0xFF);
+        }
+    }
+
+    @Test
+    void colorForTemperatureFailsOutsideOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> BlackBodyColor.colorForTemperature(999.9));
+        assertThrows(IllegalArgumentException.class, () -> BlackBodyColor.argbForTemperature(40000.1));
+    }
+}
@@ -0,0 +1,200 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkyCanvasManagerTestOurs {
+
+    private DateTimeBean dateTime;
+    private ObserverLocationBean location;
+    private ViewingParametersBean viewingParameters;
+    private SkyModeBean skyMode;
+    private MagnitudeBean magnitude;
+    private BackgroundRgbBean backgroundRgb;
+    private SkyCanvasManager manager;
+
+    @BeforeAll
+    static void useSoftwareRendering() {
+        // the canvas must not need a graphics card
+        System.setProperty("prism.order", "sw");
+    }
+
+    @BeforeEach
+    void setUp() {
+        dateTime = new DateTimeBean();
+        dateTime.setZonedDateTime(ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC));
+        location = new ObserverLocationBean();
+        location.setLonDeg(6.57);
+        location.setLatDeg(46.52);
+        viewingParameters = new ViewingParametersBean();
+        viewingParameters.setCenter(HorizontalCoordinates.ofDeg(180, 15));
+        viewingParameters.setFieldOfViewDeg(100);
+        skyMode = new SkyModeBean();
+        skyMode.setMode("normal");
+        magnitude = new MagnitudeBean();
+        backgroundRgb = new BackgroundRgbBean();
+        manager = new SkyCanvasManager(new StarCatalogue(List.of(), List.of()), dateTime, location,
+                viewingParameters, skyMode, magnitude, backgroundRgb);
+        // as the information pane of Main does, this validates the sky and the transform
+        manager.objectUnderMouseProperty().get();
+    }
+
+    private int skyStates() {
+        return manager.skyStateComputationCountProperty().get();
+    }
+
+    private int skies() {
+        return manager.skyComputationCountProperty().get();
+    }
+
+    private int[] repaints() {
+        int[] repaints = new int[SkyLayer.values().length];
+        for (SkyLayer layer : SkyLayer.values()) {
+            repaints[layer.ordinal()] = manager.repaintCountProperty(layer).get();
+        }
+        return repaints;
+    }
+
+    private void assertRepainted(int[] before, int background, int stars, int bodies, int horizon) {
+        int[] expected = {before[0] + background, before[1] + stars, before[2] + bodies, before[3] + horizon};
+        assertArrayEquals(expected, repaints());
+    }
+
+    @Test
+    void zoomResizeAndStyleOnlyRepaint() {
+        int skyStates = skyStates();
+        int skies = skies();
+        int[] repaints = repaints();
+
+        viewingParameters.setFieldOfViewDeg(80);
+        manager.canvas().setWidth(1000);
+        manager.canvas().setHeight(700);
+        skyMode.setMode("planet-excluded");
+        // within the same whole magnitude as the initial 6.86, see magnitudeLimitOnlyReprojects
+        magnitude.setMagnitude(6.5);
+        backgroundRgb.setBackgroundColor(Color.rgb(0, 10, 40));
+        manager.starRenderingProperty().set(StarRendering.RASTER);
+
+        assertEquals(skyStates, skyStates());
+        assertEquals(skies, skies());
+        // the field of view and the size move every layer but the background only follows the size
+        assertRepainted(repaints, 3, 5, 4, 3);
+    }
+
+    @Test
+    void magnitudeLimitOnlyReprojects() {
+        int skyStates = skyStates();
+        int skies = skies();
+        int[] repaints = repaints();
+
+        magnitude.setMagnitude(5);
+        magnitude.setMagnitude(4.5);
+
+        // the sky only changes when the limit crosses a whole magnitude, both changes are repainted
+        assertEquals(skyStates, skyStates());
+        assertEquals(skies + 1, skies());
+        assertRepainted(repaints, 0, 3, 1, 1);
+    }
+
+    @Test
+    void panningOnlyReprojects() {
+        int skyStates = skyStates();
+        int skies = skies();
+        int[] repaints = repaints();
+
+        viewingParameters.setCenter(HorizontalCoordinates.ofDeg(190, 15));
+        viewingParameters.setCenter(HorizontalCoordinates.ofDeg(190, 20));
+
+        assertEquals(skyStates, skyStates());
+        assertEquals(skies + 2, skies());
+        assertRepainted(repaints, 0, 2, 2, 2);
+    }
+
+    @Test
+    void skyModeOnlyRepaintsTheLayersItChanges() {
+        int[] repaints = repaints();
+
+        skyMode.setMode("horizon-excluded");
+        assertRepainted(repaints, 0, 0, 0, 1);
+        skyMode.setMode("planet-excluded");
+        assertRepainted(repaints, 0, 0, 1, 2);
+        skyMode.setMode("asterism-excluded");
+        assertRepainted(repaints, 0, 1, 2, 2);
+        skyMode.setMode("normal");
+        assertRepainted(repaints, 0, 2, 2, 2);
+    }
+
+    @Test
+    void oneSkyComputationPerAnimationTick() {
+        // what TimeAnimator.handle does on each frame, which can't run without the JavaFX toolkit
+        TimeAccelerator accelerator = NamedTimeAccelerator.TIMES_3000.getAccelerator();
+        ZonedDateTime start = dateTime.zonedDateTimeProperty().get();
+        // the bean as its observers read it, which must always be the instant they are told about
+        List<ZonedDateTime> readOnInstantChange = new ArrayList<>();
+        dateTime.zonedDateTimeProperty().addListener((o, oldValue, newValue) -> readOnInstantChange.add(
+                ZonedDateTime.of(dateTime.getDate(), dateTime.getTime(), dateTime.getZone())));
+        List<ZonedDateTime> readOnTimeChange = new ArrayList<>();
+        dateTime.timeProperty().addListener((o, oldValue, newValue) -> readOnTimeChange.add(
+                ZonedDateTime.of(dateTime.getDate(), dateTime.getTime(), dateTime.getZone())));
+        for (int tick = 1; tick <= 10; ++tick) {
+            int skyStates = skyStates();
+            int skies = skies();
+            int[] repaints = repaints();
+
+            // every field changes: date, time and zone
+            ZonedDateTime next = accelerator.adjust(start, tick * 16_000_000_000_000L)
+                    .withZoneSameInstant(ZoneOffset.ofHours(tick % 3));
+            dateTime.setZonedDateTime(next);
+
+            assertEquals(skyStates + 1, skyStates());
+            assertEquals(skies + 1, skies());
+            assertRepainted(repaints, 0, 1, 1, 1);
+            assertEquals(next, dateTime.zonedDateTimeProperty().get());
+            assertEquals(next.toLocalDate(), dateTime.getDate());
+            assertEquals(next.toLocalTime(), dateTime.getTime());
+            assertEquals(next.getZone(), dateTime.getZone());
+            assertEquals(List.of(next), readOnInstantChange);
+            assertEquals(List.of(next), readOnTimeChange);
+            readOnInstantChange.clear();
+            readOnTimeChange.clear();
+        }
+    }
+
+    @Test
+    void editingOneFieldRecomputesOnce() {
+        for (int i = 1; i <= 3; ++i) {
+            int skyStates = skyStates();
+            dateTime.setDate(LocalDate.of(2020, 3, i));
+            assertEquals(skyStates + 1, skyStates());
+            dateTime.setTime(LocalTime.of(i, 0));
+            assertEquals(skyStates + 2, skyStates());
+            dateTime.setZone(ZoneOffset.ofHours(i));
+            assertEquals(skyStates + 3, skyStates());
+            assertEquals(ZonedDateTime.of(LocalDate.of(2020, 3, i), LocalTime.of(i, 0), ZoneOffset.ofHours(i)),
+                    dateTime.zonedDateTimeProperty().get());
+        }
+    }
+
+    @Test
+    void timeAndPlaceChangesRecomputeTheSkyState() {
+        int skyStates = skyStates();
+
+        dateTime.setTime(LocalTime.of(21, 0));
+        location.setLatDeg(40);
+
+        assertEquals(skyStates + 2, skyStates());
+    }
+}
@@ -0,0 +1,149 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.ObservedSky;
+import ch.epfl.rigel.astronomy.StarCatalogue;
+import ch.epfl.rigel.coordinates.GeographicCoordinates;
+import ch.epfl.rigel.coordinates.HorizontalCoordinates;
+import ch.epfl.rigel.coordinates.StereographicProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkyComputationWorkerTestOurs {
+
+    private static final ZonedDateTime WHEN =
+            ZonedDateTime.of(LocalDate.of(2020, 2, 17), LocalTime.of(20, 15), ZoneOffset.UTC);
+    private static final GeographicCoordinates WHERE = GeographicCoordinates.ofDeg(6.57, 46.52);
+    private static final StarCatalogue CATALOGUE = new StarCatalogue(List.of(), List.of());
+
+    // both executors only run their tasks when the test says so
+    private Queue<Runnable> computations;
+    private Queue<Runnable> publications;
+    private SkyComputationWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        computations = new ArrayDeque<>();
+        publications = new ArrayDeque<>();
+        worker = new SkyComputationWorker(computations::add, publications::add, false);
+    }
+
+    private static StereographicProjection projectionAt(double azDeg) {
+        return new StereographicProjection(HorizontalCoordinates.ofDeg(azDeg, 15));
+    }
+
+    private static void runAll(Queue<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.remove().run();
+        }
+    }
+
+    @Test
+    void nothingIsPublishedBeforeTheFirstRequest() {
+        assertNull(worker.latestSkyProperty().get());
+        assertTrue(computations.isEmpty());
+    }
+
+    @Test
+    void staleRequestsAreDropped() {
+        StereographicProjection latest = projectionAt(30);
+        worker.request(WHEN, WHERE, CATALOGUE, projectionAt(10));
+        worker.request(WHEN.plusHours(1), WHERE, CATALOGUE, projectionAt(20));
+        worker.request(WHEN.plusHours(2), WHERE, CATALOGUE, latest);
+
+        // a single computation queued, for the latest request only
+        assertEquals(1, computations.size());
+        runAll(computations);
+        runAll(publications);
+
+        ObservedSky sky = worker.latestSkyProperty().get();
+        assertSame(latest, sky.projection());
+        assertEquals(WHEN.plusHours(2), sky.state().when());
+        assertEquals(1, worker.skyComputationCountProperty().get());
+        assertEquals(1, worker.skyStateComputationCountProperty().get());
+    }
+
+    @Test
+    void requestDuringComputationIsQueuedOnce() {
+        worker.request(WHEN, WHERE, CATALOGUE, projectionAt(10));
+        runAll(computations);
+        worker.request(WHEN.plusHours(1), WHERE, CATALOGUE, projectionAt(20));
+        worker.request(WHEN.plusHours(2), WHERE, CATALOGUE, projectionAt(30));
+
+        assertEquals(1, computations.size());
+        runAll(computations);
+        runAll(publications);
+        assertEquals(2, worker.skyComputationCountProperty().get());
+        assertEquals(WHEN.plusHours(2), worker.latestSkyProperty().get().state().when());
+    }
+
+    @Test
+    void unpublishedSkiesAreReplacedByNewerOnes() {
+        worker.request(WHEN, WHERE, CATALOGUE, projectionAt(10));
+        runAll(computations);
+        StereographicProjection latest = projectionAt(20);
+        worker.request(WHEN, WHERE, CATALOGUE, latest);
+        runAll(computations);
+
+        // one publication for both skies, which publishes the newest
+        assertEquals(1, publications.size());
+        assertNull(worker.latestSkyProperty().get());
+        runAll(publications);
+        assertSame(latest, worker.latestSkyProperty().get().projection());
+        assertEquals(2, worker.skyComputationCountProperty().get());
+    }
+
+    @Test
+    void stateIsReusedWhenOnlyTheProjectionChanges() {
+        worker.request(WHEN, WHERE, CATALOGUE, projectionAt(10));
+        runAll(computations);
+        runAll(publications);
+        ObservedSky first = worker.latestSkyProperty().get();
+
+        worker.request(WHEN, GeographicCoordinates.ofDeg(6.57, 46.52), CATALOGUE, projectionAt(20));
+        runAll(computations);
+        runAll(publications);
+        ObservedSky second = worker.latestSkyProperty().get();
+
+        assertNotSame(first, second);
+        assertSame(first.state(), second.state());
+        assertEquals(1, worker.skyStateComputationCountProperty().get());
+        assertEquals(2, worker.skyComputationCountProperty().get());
+    }
+
+    @Test
+    void stateIsRecomputedWhenTimePlaceOrCatalogueChange() {
+        StereographicProjection projection = projectionAt(10);
+        worker.request(WHEN, WHERE, CATALOGUE, projection);
+        runAll(computations);
+        worker.request(WHEN.plusMinutes(1), WHERE, CATALOGUE, projection);
+        runAll(computations);
+        worker.request(WHEN.plusMinutes(1), GeographicCoordinates.ofDeg(6.57, 40), CATALOGUE, projection);
+        runAll(computations);
+        worker.request(WHEN.plusMinutes(1), GeographicCoordinates.ofDeg(6.57, 40),
+                new StarCatalogue(List.of(), List.of()), projection);
+        runAll(computations);
+        runAll(publications);
+
+        assertEquals(4, worker.skyStateComputationCountProperty().get());
+    }
+
+    @Test
+    void onCallingThreadPublishesBeforeReturning() {
+        SkyComputationWorker synchronous = SkyComputationWorker.onCallingThread();
+        StereographicProjection projection = projectionAt(10);
+        synchronous.request(WHEN, WHERE, CATALOGUE, projection);
+
+        assertSame(projection, synchronous.latestSkyProperty().get().projection());
+        assertEquals(1, synchronous.skyComputationCountProperty().get());
+    }
+}
@@ -0,0 +1,151 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkyRasterizerTestOurs {
+
+    private static int alpha(int argb) {
+        return argb >>> 24;
+    }
+
+    private static double coverage(int[] pixels) {
+        double coverage = 0;
+        for (int pixel : pixels) {
+            coverage += alpha(pixel) / 255.0;
+        }
+        return coverage;
+    }
+
+    @Test
+    void discCoversItsArea() {
+        SkyRasterizer rasterizer = new SkyRasterizer(null);
+        for (double diameter : new double[]{0.5, 1, 2.25, 7.5, 20}) {
+            rasterizer.begin(40, 30);
+            rasterizer.disc(20.3, 14.6, diameter, 0xFFFFFFFF);
+            rasterizer.render();
+            double area = Math.PI * diameter * diameter / 4;
+            // within a fraction of the samples along the edge, 8 per pixel
+            assertEquals(area, coverage(rasterizer.pixels()), diameter / 8, "diameter " + diameter);
+        }
+    }
+
+    @Test
+    void centerOfLargeDiscHasItsColor() {
+        SkyRasterizer rasterizer = new SkyRasterizer(null);
+        rasterizer.begin(20, 10);
+        rasterizer.disc(5.5, 4.5, 5, 0xFF9BBCFF);
+        rasterizer.render();
+        assertEquals(0xFF9BBCFF, rasterizer.pixels()[4 * 20 + 5]);
+        assertEquals(0, rasterizer.pixels()[4 * 20 + 15]);
+    }
+
+    @Test
+    void colorsArePremultipliedAndBlended() {
+        SkyRasterizer rasterizer = new SkyRasterizer(null);
+        rasterizer.begin(10, 10);
+        // a disc of a quarter of pixel only partly covers its pixel
+        rasterizer.disc(5.5, 5.5, 0.5, 0xFFFF0000);
+        rasterizer.render();
+        int once = rasterizer.pixels()[5 * 10 + 5];
+        assertTrue(0 < alpha(once) && alpha(once) < 255);
+        assertEquals(alpha(once), (once >> 16) & 0xFF);
+        assertEquals(0, once & 0xFFFF);
+        rasterizer.disc(5.5, 5.5, 0.5, 0xFF0000FF);
+        rasterizer.render();
+        int twice = rasterizer.pixels()[5 * 10 + 5];
+        assertTrue(alpha(twice) > alpha(once));
+        assertTrue((twice & 0xFF) > 0 && ((twice >> 16) & 0xFF) > 0);
+        // an opaque disc hides what is below it
+        rasterizer.disc(5.5, 5.5, 4, 0xFF00FF00);
+        rasterizer.render();
+        assertEquals(0xFF00FF00, rasterizer.pixels()[5 * 10 + 5]);
+    }
+
+    @Test
+    void shapesAreClippedToThePixels() {
+        SkyRasterizer rasterizer = new SkyRasterizer(null);
+        rasterizer.begin(10, 10);
+        rasterizer.disc(0, 0, 6, 0xFFFFFFFF);
+        rasterizer.disc(10, 9.9, 6, 0xFFFFFFFF);
+        rasterizer.disc(-50, 5, 6, 0xFFFFFFFF);
+        rasterizer.disc(1e300, Double.NaN, 6, 0xFFFFFFFF);
+        rasterizer.disc(Double.POSITIVE_INFINITY, 5, 6, 0xFFFFFFFF);
+        rasterizer.line(-1e7, 2.5, 1e7, 2.5, 1, 0xFF0000FF);
+        rasterizer.line(5, 5, Double.NaN, 5, 1, 0xFF0000FF);
+        rasterizer.line(-1e9, 8.5, 1e9, 8.5, 1, 0xFFFF0000);
+        rasterizer.render();
+        assertEquals(0xFFFFFFFF, rasterizer.pixels()[0]);
+        assertEquals(0xFFFFFFFF, rasterizer.pixels()[99]);
+        assertEquals(0, rasterizer.pixels()[5 * 10 + 5]);
+        assertEquals(0xFF0000FF, rasterizer.pixels()[2 * 10 + 5]);
+        assertEquals(0xFFFF0000, rasterizer.pixels()[8 * 10 + 5]);
+    }
+
+    @Test
+    void linesCoverTheirStroke() {
+        SkyRasterizer rasterizer = new SkyRasterizer(null);
+        rasterizer.begin(200, 200);
+        rasterizer.line(20, 30, 180, 150, 2, 0xFFFFFFFF);
+        rasterizer.render();
+        assertEquals(2 * 200, coverage(rasterizer.pixels()), 4);
+        assertEquals(0xFFFFFFFF, rasterizer.pixels()[90 * 200 + 100]);
+    }
+
+    @Test
+    void layersAreLinesThenDiscs() {
+        SkyRasterizer rasterizer = new SkyRasterizer(null);
+        rasterizer.begin(20, 20);
+        rasterizer.disc(10, 10, 8, 0xFF00FF00);
+        rasterizer.line(0, 10.5, 20, 10.5, 3, 0xFF0000FF);
+        rasterizer.render();
+        assertEquals(0xFF00FF00, rasterizer.pixels()[10 * 20 + 10]);
+        assertEquals(0xFF0000FF, rasterizer.pixels()[10 * 20 + 1]);
+    }
+
+    @Test
+    void parallelBandsGiveTheSamePixels() {
+        long seed = TestRandomizer.newRandom().nextLong();
+        SkyRasterizer serial = new SkyRasterizer(null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SkyRasterizer parallel = new SkyRasterizer(pool);
+            for (SkyRasterizer rasterizer : new SkyRasterizer[]{serial, parallel}) {
+                SplittableRandom shapes = new SplittableRandom(seed);
+                rasterizer.begin(300, 500);
+                for (int i = 0; i < 50; ++i) {
+                    rasterizer.line(shapes.nextDouble(-50, 350), shapes.nextDouble(-50, 550),
+                            shapes.nextDouble(-50, 350), shapes.nextDouble(-50, 550), 1.5, shapes.nextInt() | 0xFF000000);
+                }
+                for (int i = 0; i < 5000; ++i) {
+                    rasterizer.disc(shapes.nextDouble(-10, 310), shapes.nextDouble(-10, 510),
+                            shapes.nextDouble(0, 12), shapes.nextInt() | 0xFF000000);
+                }
+                rasterizer.render();
+            }
+            assertArrayEquals(serial.pixels(), parallel.pixels());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void renderClearsThePixels() {
+        SkyRasterizer rasterizer = new SkyRasterizer(null);
+        rasterizer.begin(10, 10);
+        rasterizer.disc(5, 5, 8, 0xFFFFFFFF);
+        rasterizer.render();
+        rasterizer.begin(10, 10);
+        rasterizer.render();
+        for (int pixel : rasterizer.pixels()) {
+            assertEquals(0, pixel);
+        }
+        rasterizer.begin(12, 7);
+        assertEquals(84, rasterizer.pixels().length);
+    }
+}
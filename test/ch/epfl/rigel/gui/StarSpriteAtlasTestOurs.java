@@ -0,0 +1,64 @@
+package ch.epfl.rigel.gui;
+
+import ch.epfl.rigel.astronomy.Star;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StarSpriteAtlasTestOurs {
+
+    @BeforeAll
+    static void useSoftwareRendering() {
+        // the canvas must not need a graphics card
+        System.setProperty("prism.order", "sw");
+    }
+
+    @Test
+    void spritesAreRenderedOncePerDiameterAndColor() {
+        GraphicsContext ctx = new Canvas(100, 100).getGraphicsContext2D();
+        StarSpriteAtlas atlas = new StarSpriteAtlas();
+        int sun = Star.colorTemperatureBucket(5800), rigel = Star.colorTemperatureBucket(12100);
+        atlas.draw(ctx, 10, 10, 3.3, sun);
+        atlas.draw(ctx, 50.7, 20.1, 3.3, sun);
+        // the same diameter once rounded to a quarter of pixel
+        atlas.draw(ctx, 30, 80, 3.26, sun);
+        assertEquals(1, atlas.spriteCount());
+        atlas.draw(ctx, 10, 10, 3.3, rigel);
+        atlas.draw(ctx, 10, 10, 6, sun);
+        assertEquals(3, atlas.spriteCount());
+        // too small to be seen
+        atlas.draw(ctx, 10, 10, 0.1, sun);
+        assertEquals(3, atlas.spriteCount());
+    }
+
+    @Test
+    void spriteIsAnAntiAliasedDiscOfTheStarColor() {
+        GraphicsContext ctx = new Canvas(100, 100).getGraphicsContext2D();
+        StarSpriteAtlas atlas = new StarSpriteAtlas();
+        int bucket = Star.colorTemperatureBucket(5800);
+        atlas.draw(ctx, 10, 10, 5, bucket);
+        Image page = atlas.pages().get(0);
+        // a disc of diameter 5 in a square of side 8, centered on its middle
+        assertEquals(BlackBodyColor.argbForBucket(bucket), page.getPixelReader().getArgb(4, 4));
+        assertEquals(0, page.getPixelReader().getArgb(0, 0) >>> 24);
+        int edge = page.getPixelReader().getArgb(1, 4) >>> 24;
+        assertTrue(0 < edge && edge < 255);
+    }
+
+    @Test
+    void atlasKeepsOnePagePerMegapixelOfSprites() {
+        GraphicsContext ctx = new Canvas(100, 100).getGraphicsContext2D();
+        StarSpriteAtlas atlas = new StarSpriteAtlas();
+        for (int kelvin = 1000; kelvin <= 40000; kelvin += 100) {
+            for (double diameter = 0.25; diameter <= 8; diameter += 0.25) {
+                atlas.draw(ctx, 50, 50, diameter, Star.colorTemperatureBucket(kelvin));
+            }
+        }
+        assertEquals(391 * 32, atlas.spriteCount());
+        assertTrue(atlas.pages().size() <= 2);
+    }
+}
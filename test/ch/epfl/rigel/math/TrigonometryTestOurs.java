@@ -0,0 +1,83 @@
+package ch.epfl.rigel.math;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigonometryTestOurs {
+
+    private static final Trigonometry DISPLAY = Trigonometry.DISPLAY;
+
+    @Test
+    void preciseIsJavaLangMath() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            double a = rng.nextDouble(-10, 10), v = rng.nextDouble(-1, 1), y = rng.nextDouble(-1, 1);
+            assertEquals(Math.sin(a), Trigonometry.PRECISE.sin(a));
+            assertEquals(Math.cos(a), Trigonometry.PRECISE.cos(a));
+            assertEquals(Math.asin(v), Trigonometry.PRECISE.asin(v));
+            assertEquals(Math.atan2(y, v), Trigonometry.PRECISE.atan2(y, v));
+        }
+    }
+
+    @Test
+    void displaySineAndCosineAreWithinMaxError() {
+        // dense sweep over a few turns, hitting the table entries and the middle of their intervals
+        for (double a = -4 * Math.PI; a <= 4 * Math.PI; a += 1e-4) {
+            assertEquals(Math.sin(a), DISPLAY.sin(a), DISPLAY.maxError());
+            assertEquals(Math.cos(a), DISPLAY.cos(a), DISPLAY.maxError());
+        }
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            double a = rng.nextDouble(-16 * Math.PI, 16 * Math.PI);
+            assertEquals(Math.sin(a), DISPLAY.sin(a), DISPLAY.maxError());
+            assertEquals(Math.cos(a), DISPLAY.cos(a), DISPLAY.maxError());
+        }
+    }
+
+    @Test
+    void displayArcSineIsWithinMaxError() {
+        for (double v = -1; v <= 1; v += 1e-5) {
+            assertEquals(Math.asin(v), DISPLAY.asin(v), DISPLAY.maxError());
+        }
+        for (double v : new double[]{-1, -0.0, 0, 1, Math.nextDown(1.0), Math.nextUp(-1.0)}) {
+            assertEquals(Math.asin(v), DISPLAY.asin(v), DISPLAY.maxError());
+        }
+        assertEquals(Math.PI / 2, DISPLAY.asin(1));
+        assertEquals(-Math.PI / 2, DISPLAY.asin(-1));
+    }
+
+    @Test
+    void displayArcTangentIsWithinMaxError() {
+        // every direction of the plane, at several distances from the origin
+        for (double r : new double[]{1e-300, 1e-3, 1, 1e3, 1e300}) {
+            for (double a = -Math.PI; a <= Math.PI; a += 1e-4) {
+                double y = r * Math.sin(a), x = r * Math.cos(a);
+                assertEquals(Math.atan2(y, x), DISPLAY.atan2(y, x), DISPLAY.maxError());
+            }
+        }
+    }
+
+    @Test
+    void displayMatchesMathOnSpecialValues() {
+        double[] values = {0.0, -0.0, 1, -1, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN};
+        for (double y : values) {
+            for (double x : values) {
+                if (Double.isNaN(y) || Double.isNaN(x) || Double.isInfinite(y) || Double.isInfinite(x)
+                        || (x == 0 && y == 0)) {
+                    assertEquals(Math.atan2(y, x), DISPLAY.atan2(y, x));
+                }
+            }
+        }
+        assertEquals(Math.atan2(0.0, -1), DISPLAY.atan2(0.0, -1));
+        assertEquals(Math.atan2(-0.0, -1), DISPLAY.atan2(-0.0, -1));
+        assertTrue(Double.isNaN(DISPLAY.sin(Double.NaN)));
+        assertTrue(Double.isNaN(DISPLAY.cos(Double.POSITIVE_INFINITY)));
+        assertTrue(Double.isNaN(DISPLAY.asin(1.5)));
+        assertEquals(0, DISPLAY.sin(0));
+        assertEquals(1, DISPLAY.cos(0));
+    }
+}
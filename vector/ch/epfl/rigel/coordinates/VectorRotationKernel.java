@@ -0,0 +1,51 @@
+package ch.epfl.rigel.coordinates;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Conversion of the equatorial unit vectors of the stars to the plane with the vector instructions of the
+ * processor, as many stars at a time as a vector register holds doubles.
+ * <p>
+ *     Needs the jdk.incubator.vector module, i.e. Java 16 or later with --add-modules jdk.incubator.vector,
+ *     both to compile and to run. Only compiled by bench/run-benchmarks.sh, the project targeting Java 11, so
+ *     that it is only used by the benchmarks. Only ever instantiated by EquatorialToPlaneRotation, which uses
+ *     its scalar loop when this class or the module are missing, as in the program. Every operation is done in the same order as by the
+ *     scalar loop, without fused multiply-add, so that both give exactly the same results.
+ * </p>
+ * @author Alp Ozen (314542)
+ * @author Jacopo Ferro (299301)
+ */
+final class VectorRotationKernel implements EquatorialToPlaneRotation.Kernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void apply(double[] matrix, double[] ux, double[] uy, double[] uz, double[] xy,
+                      int from, int to, int[] xyIndex) {
+        double xx = matrix[0], xy0 = matrix[1], xz = matrix[2];
+        double yx = matrix[3], yy = matrix[4], yz = matrix[5];
+        double cx = matrix[6], cy = matrix[7], cz = matrix[8];
+        int lanes = SPECIES.length();
+        // projections of the current vector of stars, scattered to xy one by one: the scatter of the vector API
+        // crashes the JIT of Java 17 and would be no faster, the stores being at random places anyway
+        double[] planeX = new double[lanes], planeY = new double[lanes];
+
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += lanes) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, ux, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, uy, i);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, uz, i);
+            DoubleVector d = DoubleVector.broadcast(SPECIES, 1.0)
+                    .div(x.mul(cx).add(1).add(y.mul(cy)).add(z.mul(cz)));
+            d.mul(x.mul(xx).add(y.mul(xy0)).add(z.mul(xz))).intoArray(planeX, 0);
+            d.mul(x.mul(yx).add(y.mul(yy)).add(z.mul(yz))).intoArray(planeY, 0);
+            for (int l = 0; l < lanes; ++l) {
+                int j = xyIndex[i + l];
+                xy[2 * j] = planeX[l];
+                xy[2 * j + 1] = planeY[l];
+            }
+        }
+        EquatorialToPlaneRotation.applyScalar(matrix, ux, uy, uz, xy, i, to, xyIndex);
+    }
+}